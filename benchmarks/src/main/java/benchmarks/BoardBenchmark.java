@@ -0,0 +1,36 @@
+package benchmarks;
+
+import chess.ChessBoard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Benchmark
+    public ChessBoard copy(GameState state) {
+        return new ChessBoard(state.game.getBoard());
+    }
+
+    @Benchmark
+    public boolean equalsCopy(GameState state) {
+        ChessBoard board = state.game.getBoard();
+        return board.equals(new ChessBoard(board));
+    }
+
+    @Benchmark
+    public String toString(GameState state) {
+        return state.game.getBoard().toString();
+    }
+}
@@ -0,0 +1,20 @@
+package benchmarks;
+
+import chess.SharedMoveCache;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Empties the {@link SharedMoveCache} before every call, so a benchmark that takes it
+ * measures generating the moves rather than looking them up
+ */
+@State(Scope.Thread)
+public class EmptyMoveCache {
+
+    @Setup(Level.Invocation)
+    public void clear() {
+        SharedMoveCache.shared().clear();
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Fen;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The positions every benchmark runs over, one game per benchmark thread.
+ * Also keeps the squares and legal moves of the side to move so the benchmarks
+ * don't spend their time finding them.
+ */
+@State(Scope.Thread)
+public class GameState {
+    static final Map<String, String> POSITIONS = Map.of(
+            "opening", "r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3",
+            "middlegame", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+    );
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    ChessGame game;
+    final List<ChessPosition> pieces = new ArrayList<>();
+    final List<ChessMove> legalMoves = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        game = Fen.load(POSITIONS.get(position));
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition square = ChessPosition.of(row, col);
+                var piece = game.getBoard().getPiece(square);
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    pieces.add(square);
+                    legalMoves.addAll(game.validMoves(square));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessPosition;
+import chess.rules.MoveList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleBookBenchmark {
+
+    /**
+     * Generates every legal move of the side to move, which never goes through the move cache
+     */
+    @Benchmark
+    public void generateLegalMoves(GameState state, Blackhole blackhole) {
+        MoveList moves = MoveList.acquire();
+        state.game.generateLegalMoves(moves);
+        blackhole.consume(moves.size());
+        moves.release();
+    }
+
+    /**
+     * The legal moves of every piece of the side to move, as the client asks for when
+     * highlighting, with the move cache emptied first so they're generated
+     */
+    @Benchmark
+    public void validMoves(GameState state, EmptyMoveCache cache, Blackhole blackhole) {
+        for (ChessPosition square : state.pieces) {
+            blackhole.consume(state.game.validMoves(square));
+        }
+    }
+
+    /**
+     * The same moves as {@link #validMoves}, from one call for the whole side
+     */
+    @Benchmark
+    public void legalMoves(GameState state, EmptyMoveCache cache, Blackhole blackhole) {
+        blackhole.consume(state.game.legalMoves(state.game.getTeamTurn()));
+    }
+
+    /**
+     * {@link #validMoves} once the position is in the move cache, as for every game after the first
+     */
+    @Benchmark
+    public void cachedValidMoves(GameState state, Blackhole blackhole) {
+        for (ChessPosition square : state.pieces) {
+            blackhole.consume(state.game.validMoves(square));
+        }
+    }
+
+    @Benchmark
+    public void cachedLegalMoves(GameState state, Blackhole blackhole) {
+        blackhole.consume(state.game.legalMoves(state.game.getTeamTurn()));
+    }
+
+    @Benchmark
+    public void isInCheck(GameState state, Blackhole blackhole) {
+        blackhole.consume(state.game.isInCheck(ChessGame.TeamColor.WHITE));
+        blackhole.consume(state.game.isInCheck(ChessGame.TeamColor.BLACK));
+    }
+
+    /**
+     * Stalemate tests for both sides, generating each side's moves. The checkmate test isn't
+     * measured this way since out of check it answers without generating anything.
+     */
+    @Benchmark
+    public void isInStalemate(GameState state, EmptyMoveCache cache, Blackhole blackhole) {
+        blackhole.consume(state.game.isInStalemate(ChessGame.TeamColor.WHITE));
+        blackhole.consume(state.game.isInStalemate(ChessGame.TeamColor.BLACK));
+    }
+
+    @Benchmark
+    public void cachedIsInStalemate(GameState state, Blackhole blackhole) {
+        blackhole.consume(state.game.isInStalemate(ChessGame.TeamColor.WHITE));
+        blackhole.consume(state.game.isInStalemate(ChessGame.TeamColor.BLACK));
+    }
+
+    /**
+     * Makes and takes back every legal move, so the position is the same for the next call
+     */
+    @Benchmark
+    public void makeMove(GameState state, Blackhole blackhole) throws Exception {
+        for (var move : state.legalMoves) {
+            state.game.makeMove(move);
+            blackhole.consume(state.game.getTeamTurn());
+            state.game.unmakeMove();
+        }
+    }
+}
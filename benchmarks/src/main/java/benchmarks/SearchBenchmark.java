@@ -0,0 +1,63 @@
+package benchmarks;
+
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How the engine's search speed scales with threads. Each call is a fixed length search
+ * from an empty transposition table, and the nodes counter gives the nodes per second
+ * across all of its threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    private static final long SEARCH_MILLIS = 250;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Engine engine;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        engine = new Engine(Engine.DEFAULT_TABLE_MEGABYTES, threads);
+    }
+
+    @Benchmark
+    public int search(GameState state, Nodes counter) {
+        engine.clear();
+        var result = engine.search(state.game, SearchLimits.time(SEARCH_MILLIS));
+        counter.nodes += result.nodes();
+        return result.depth();
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import chess.ChessGame;
+import com.google.gson.Gson;
+import deserializer.ChessDeserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Games are written to the database and sent to clients as JSON, and read back with
+ * the chess Gson on every request that touches them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+    private Gson gson;
+    private String json;
+
+    @Setup
+    public void setup(GameState state) {
+        gson = new ChessDeserializer().createChessGson();
+        json = gson.toJson(state.game);
+    }
+
+    @Benchmark
+    public String toJson(GameState state) {
+        return gson.toJson(state.game);
+    }
+
+    @Benchmark
+    public ChessGame fromJson() {
+        return gson.fromJson(json, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame roundTrip(GameState state) {
+        return gson.fromJson(gson.toJson(state.game), ChessGame.class);
+    }
+}
@@ -19,6 +19,8 @@ public class ChessClient {
     private String userName = null;
     private AuthData userAuth = null;
     private int currentGameID = 0;
+    //the side the user plays in the current game, null while observing
+    private ChessGame.TeamColor playerColor = null;
     private final ServerFacade server;
     private final String serverUrl;
     private final NotificationHandler notificationHandler;
@@ -44,11 +46,13 @@ public class ChessClient {
                 case "create" -> createGame(params);
                 case "list" -> listGames();
                 case "join" -> joinGame(params);
+                case "bot" -> addBot(params);
                 case "observe" -> observeGame(params);
                 case "leave" -> leaveGame();
                 case "resign" -> resignGame();
                 case "redraw" -> redrawBoard();
                 case "highlight" -> highlightMove(params);
+                case "analyze" -> analyzeGame();
                 case "move" -> makeMove(params);
                 case "quit" -> "quit";
                 default -> help();
@@ -144,8 +148,10 @@ public class ChessClient {
                     throw new ResponseException(400, "Invalid player color");
                 } else if (params[1].equals("white")) {
                     server.joinGame(userAuth.authToken(), ChessGame.TeamColor.WHITE, gameID);
+                    playerColor = ChessGame.TeamColor.WHITE;
                 } else {
                     server.joinGame(userAuth.authToken(), ChessGame.TeamColor.BLACK, gameID);
+                    playerColor = ChessGame.TeamColor.BLACK;
                 }
                 state = State.GAMING;
                 currentGameID = gameID;
@@ -158,6 +164,28 @@ public class ChessClient {
         throw new ResponseException(400, "Expected: <id> [WHITE|BLACK]");
     }
 
+    public String addBot(String... params) throws ResponseException {
+        assertGaming();
+        if (params.length <= 1) {
+            //the server only lets a player seat a bot, as their opponent
+            if (playerColor == null) {
+                throw new ResponseException(400, "Only a player can add a bot");
+            }
+            long moveMillis = 1000;
+            if (params.length == 1) {
+                try {
+                    moveMillis = Long.parseLong(params[0]);
+                } catch (NumberFormatException e) {
+                    throw new ResponseException(400, "Invalid milliseconds per move");
+                }
+            }
+            var color = playerColor == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            server.addBot(userAuth.authToken(), color, currentGameID, moveMillis);
+            return String.format("A bot is playing %s, thinking %dms per move.", color.toString().toLowerCase(), moveMillis);
+        }
+        throw new ResponseException(400, "Expected: [milliseconds per move]");
+    }
+
     public String observeGame(String... params) throws ResponseException {
         assertLoggedIn();
         if (params.length == 1) {
@@ -171,6 +199,7 @@ public class ChessClient {
                 server.observeGame(userAuth.authToken(), gameID);
                 state = State.GAMING;
                 currentGameID = gameID;
+                playerColor = null;
                 return "";
             }
             else {
@@ -199,6 +228,12 @@ public class ChessClient {
         return "";
     }
 
+    public String analyzeGame() throws ResponseException {
+        assertGaming();
+        server.analyzeGame(userAuth.authToken(), currentGameID);
+        return "Analyzing...";
+    }
+
     public String highlightMove(String... params) throws ResponseException {
         assertGaming();
         if (params.length == 1) {
@@ -275,12 +310,16 @@ public class ChessClient {
                 + secondaryColor + " - highlights all legal moves for piece in selected square \n"
                 + primaryColor + " - move <square> <destination>"
                 + secondaryColor + " - move piece from square to destination \n"
+                + primaryColor + " - bot [ms]"
+                + secondaryColor + " - seats a computer player against you, thinking ms per move\n"
                 + primaryColor + " - leave"
                 + secondaryColor + " - leaves current game\n"
                 + primaryColor + " - resign"
                 + secondaryColor + " - resigns current game\n"
                 + primaryColor + " - redraw"
                 + secondaryColor + " - redraws the board\n"
+                + primaryColor + " - analyze"
+                + secondaryColor + " - shows the engine's best line for the current position\n"
                 + primaryColor + " - help"
                 + secondaryColor + " - displays this menu \n";
     }
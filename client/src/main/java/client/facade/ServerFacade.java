@@ -73,6 +73,17 @@ public class ServerFacade {
         ws.connectGame(authToken, gameID);
     }
 
+    /**
+     * Seats a bot opposite the caller in a game they're playing, without connecting to it
+     */
+    public void addBot(String authToken, ChessGame.TeamColor botColor, int gameID, long moveMillis) throws ResponseException {
+        var path = "/game";
+        Map<String, String> headers = new HashMap<>();
+        headers.put("authorization", authToken);
+        JoinGameRequest joinGameRequest = new JoinGameRequest(botColor, gameID, moveMillis);
+        this.makeRequest("PUT", path, headers, joinGameRequest, null);
+    }
+
     public void clear() throws ResponseException {
         var path = "/db";
         this.makeRequest("DELETE", path, null, null, null);
@@ -94,6 +105,10 @@ public class ServerFacade {
         ws.redrawBoard(authToken, gameID);
     }
 
+    public void analyzeGame(String authToken, int gameID) throws ResponseException {
+        ws.analyzeGame(authToken, gameID);
+    }
+
     public void highlightMoves(String authToken, int gameID, String square) throws ResponseException {
         ws.highlightMoves(authToken, gameID, square);
     }
@@ -9,6 +9,7 @@ import model.GameMessage;
 import websocket.commands.HighlightMovesCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
+import websocket.messages.AnalysisMessage;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.Notification;
@@ -61,6 +62,9 @@ public class WebSocketCommunicator extends Endpoint {
             case 'L' -> {
                 handleLoadGame(message);
             }
+            case 'A' -> {
+                handleAnalysis(message);
+            }
         }
     }
 
@@ -74,6 +78,11 @@ public class WebSocketCommunicator extends Endpoint {
         notificationHandler.notifyError(errorMessage.getMessage());
     }
 
+    private void handleAnalysis(String message) {
+        AnalysisMessage analysisMessage = new Gson().fromJson(message, AnalysisMessage.class);
+        notificationHandler.notify(analysisMessage.getMessage());
+    }
+
     private void handleLoadGame(String message) {
         LoadGameMessage loadGameMessage = new Gson().fromJson(message, LoadGameMessage.class);
         GameMessage gameInfo = loadGameMessage.getGame();
@@ -116,6 +125,15 @@ public class WebSocketCommunicator extends Endpoint {
         }
     }
 
+    public void analyzeGame(String authToken, int gameID) throws ResponseException {
+        try {
+            var command = new UserGameCommand(UserGameCommand.CommandType.ANALYZE, authToken, gameID);
+            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+        } catch (IOException ex) {
+            throw new ResponseException(500, ex.getMessage());
+        }
+    }
+
     public void highlightMoves(String authToken, int gameID, String square) throws ResponseException {
         try {
             ChessPosition pos = parsePos(square);
@@ -148,7 +166,7 @@ public class WebSocketCommunicator extends Endpoint {
         char rowChar = square.charAt(1);
         int col = parseCol(colChar);
         int row = parseRow(Integer.parseInt(String.valueOf(rowChar)));
-        return new ChessPosition(row, col);
+        return ChessPosition.of(row, col);
     }
 
     private int parseCol(char colChar) {
@@ -5,6 +5,7 @@ import chess.ChessPiece;
 import chess.ChessPosition;
 import chess.rulebook.FIDERuleBook;
 import chess.rulebook.RuleBook;
+import chess.rulebook.Variant;
 import com.google.gson.*;
 import model.GameData;
 import deserializer.ChessDeserializer;
@@ -20,9 +21,9 @@ public class DatabaseGameDAO implements GameDAO {
         DatabaseManager.configureDatabase(createStatements);
     }
 
-    public GameData createGame(String gameName) throws DataAccessException {
+    public GameData createGame(String gameName, Variant variant) throws DataAccessException {
         var statement = "INSERT INTO games (white_username, black_username, game_name, json, isOver) VALUES (?, ?, ?, ?, ?)";
-        ChessGame newChessGame = new ChessGame();
+        ChessGame newChessGame = new ChessGame(variant);
         var json = new Gson().toJson(newChessGame);
         var id = executeUpdate(statement, null, null, gameName, json, 0);
         return new GameData(id, null, null, gameName, newChessGame, false);
@@ -89,7 +90,6 @@ public class DatabaseGameDAO implements GameDAO {
         boolean overBoolean = Boolean.parseBoolean(overString);
         Gson gson = new ChessDeserializer().createChessGson();
         ChessGame game = gson.fromJson(jsonString, ChessGame.class);
-        game.setBoard(game.getBoard());
 
         return new GameData(gameID, whiteUsername, blackUsername, gameName, game, overBoolean);
     }
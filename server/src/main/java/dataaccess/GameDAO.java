@@ -1,11 +1,15 @@
 package dataaccess;
 
+import chess.rulebook.Variant;
 import model.GameData;
 
 import java.util.Collection;
 
 public interface GameDAO {
-    GameData createGame(String gameName) throws ServerException;
+    default GameData createGame(String gameName) throws ServerException {
+        return createGame(gameName, Variant.STANDARD);
+    }
+    GameData createGame(String gameName, Variant variant) throws ServerException;
     GameData getGame(int gameID) throws ServerException;
     Collection<GameData> listGames() throws ServerException;
     void updateGame(int gameID, GameData gameData) throws ServerException;
@@ -1,6 +1,7 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.rulebook.Variant;
 import model.GameData;
 
 import java.util.Collection;
@@ -11,8 +12,8 @@ public class MemoryGameDAO implements GameDAO{
     private int nextID = 1;
     private final HashMap<Integer, GameData> games = new HashMap<>();
 
-    public GameData createGame(String gameName) throws ServerException {
-        var game = new GameData(nextID++, null, null, gameName, new ChessGame(), false);
+    public GameData createGame(String gameName, Variant variant) throws ServerException {
+        var game = new GameData(nextID++, null, null, gameName, new ChessGame(variant), false);
         games.put(game.gameID(), game);
         return game;
     }
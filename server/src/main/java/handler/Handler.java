@@ -9,6 +9,7 @@ import service.GameService;
 import service.UserService;
 import spark.Request;
 import spark.Response;
+import websocket.GameActors;
 
 import javax.xml.crypto.Data;
 import java.util.Collection;
@@ -19,8 +20,16 @@ public class Handler {
     private final UserService userService;
     private final AuthService authService;
     private final GameService gameService;
-
-    public Handler() throws ServerException {
+    private final GameActors actors;
+    private final WebSocketHandler webSocketHandler;
+
+    /**
+     * @param actors           the game mailboxes, shared with the websocket handler
+     * @param webSocketHandler told when a bot is seated, so it can start playing
+     */
+    public Handler(GameActors actors, WebSocketHandler webSocketHandler) throws ServerException {
+        this.actors = actors;
+        this.webSocketHandler = webSocketHandler;
         UserDAO userDataAccess = new DatabaseUserDAO();
         AuthDAO authDataAccess = new DatabaseAuthDAO();
         GameDAO gameDataAccess = new DatabaseGameDAO();
@@ -52,7 +61,7 @@ public class Handler {
     public Object createGame(Request req, Response res) throws ServerException {
         var auth = new Gson().fromJson(req.headers("authorization"), String.class);
         CreateGameRequest createGameRequest = new Gson().fromJson(req.body(), CreateGameRequest.class);
-        int gameID = gameService.createGame(auth, createGameRequest.gameName());
+        int gameID = gameService.createGame(auth, createGameRequest.gameName(), createGameRequest.variant());
         CreateGameResponse createGameResponse = new CreateGameResponse(gameID);
         return new Gson().toJson(createGameResponse);
     }
@@ -60,7 +69,16 @@ public class Handler {
     public Object joinGame(Request req, Response res) throws ServerException {
         String auth = req.headers("authorization");
         JoinGameRequest joinGameRequest = new Gson().fromJson(req.body(), JoinGameRequest.class);
-        gameService.joinGame(auth, joinGameRequest);
+        //seats change on the game's mailbox, so a join can't be lost to a move being saved at the same time
+        actors.call(joinGameRequest.gameID(), live -> {
+            GameData newGame = gameService.joinGame(auth, joinGameRequest, live.get());
+            live.set(newGame);
+            if (joinGameRequest.botMoveMillis() != null) {
+                webSocketHandler.botJoined(newGame, joinGameRequest.playerColor());
+            }
+            //the player may never connect, so the mailbox doesn't hold on to the game for them
+            live.retire();
+        });
 
         return new Gson().toJson(new Object());
     }
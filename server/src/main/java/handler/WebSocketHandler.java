@@ -1,21 +1,26 @@
 package handler;
 
 import chess.*;
-import chess.rulebook.FIDERuleBook;
 import com.google.gson.Gson;
 import dataaccess.*;
 import model.AuthData;
+import model.BotPlayer;
 import model.GameData;
 import model.GameMessage;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
 import service.AuthService;
 import service.GameService;
+import websocket.AnalysisPool;
+import websocket.BotScheduler;
 import websocket.ConnectionManager;
+import websocket.GameActors;
 import websocket.commands.HighlightMovesCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
+import websocket.messages.AnalysisMessage;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.Notification;
@@ -32,10 +37,18 @@ import static ui.EscapeSequences.*;
 @WebSocket
 public class WebSocketHandler {
     private final ConnectionManager connections = new ConnectionManager();
+    private final GameActors actors;
+    private final AnalysisPool analyses = new AnalysisPool();
+    private final BotScheduler bots = new BotScheduler();
     private final AuthService authService;
     private final GameService gameService;
 
-    public WebSocketHandler() throws ServerException {
+    /**
+     * @param actors the game mailboxes, shared with the HTTP handler so seat changes go
+     *               through the same one as the game's moves
+     */
+    public WebSocketHandler(GameActors actors) throws ServerException {
+        this.actors = actors;
         AuthDAO authDataAccess = new DatabaseAuthDAO();
         GameDAO gameDataAccess = new DatabaseGameDAO();
         this.authService = new AuthService(authDataAccess);
@@ -43,39 +56,97 @@ public class WebSocketHandler {
     }
 
     @OnWebSocketMessage
-    public void onMessage(Session session, String message) throws IOException, ServerException {
+    public void onMessage(Session session, String message) {
         int ctIndex = message.indexOf("commandType");
         char commandType = message.charAt(ctIndex + 14);
         if (!(commandType == 'M' || commandType == 'H')) {
             UserGameCommand command = new Gson().fromJson(message, UserGameCommand.class);
+            int gameID = command.getGameID();
+            String authToken = command.getAuthToken();
             switch (command.getCommandType()) {
-                case CONNECT -> connect(command.getGameID(), command.getAuthToken(), session);
-                case LEAVE -> leave(command.getGameID(), command.getAuthToken(), session);
-                case RESIGN -> resign(command.getGameID(), command.getAuthToken(), session);
-                case DRAW -> redraw(command.getGameID(), command.getAuthToken(), session);
+                case CONNECT -> submit(gameID, session, live -> connect(live, gameID, authToken, session));
+                case LEAVE -> submit(gameID, session, live -> leave(live, gameID, authToken, session));
+                case RESIGN -> submit(gameID, session, live -> resign(live, authToken, session));
+                case DRAW -> submit(gameID, session, live -> redraw(live, gameID, authToken, session));
+                case ANALYZE -> submit(gameID, session, live -> analyze(live, gameID, authToken, session));
             }
         } else {
             if (commandType == 'M') {
                 MakeMoveCommand command = new Gson().fromJson(message, MakeMoveCommand.class);
-                makeMove(command.getGameID(), command.getAuthToken(), command.getMove(), session);
+                submit(command.getGameID(), session,
+                        live -> makeMove(live, command.getAuthToken(), command.getMove(), session));
             } else {
                 HighlightMovesCommand command = new Gson().fromJson(message, HighlightMovesCommand.class);
-                highlightMoves(command.getGameID(), command.getAuthToken(), command.getPos(), session);
+                submit(command.getGameID(), session,
+                        live -> highlightMoves(live, command.getGameID(), command.getAuthToken(), command.getPos(), session));
             }
         }
 
         System.out.printf("Received: %s\n", message);
     }
 
+    public BotScheduler.Metrics getBotMetrics() {
+        return bots.getMetrics();
+    }
+
+    @OnWebSocketClose
+    public void onClose(Session session, int statusCode, String reason) {
+        analyses.cancel(session);
+        var connection = connections.connections.get(session);
+        if (connection != null) {
+            actors.submit(connection.gameID, live -> {
+                connections.remove(session);
+                retireIfEmpty(live, connection.gameID);
+            });
+        }
+    }
+
+    /**
+     * Queues a command behind the ones already sent for its game, so two players moving at
+     * once are applied one after the other to the game the mailbox holds
+     */
+    private void submit(int gameID, Session session, GameActors.GameTask task) {
+        actors.submit(gameID, live -> {
+            try {
+                task.run(live);
+            } catch (ServerException e) {
+                //whatever the command changed may not have been saved
+                live.forget();
+                handleError(session, "error: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Tells the game's players a bot took a seat, and starts its search if it's to move. Called
+     * from the join on the game's mailbox, since the player who seated it is usually already
+     * connected and won't connect again.
+     */
+    public void botJoined(GameData game, ChessGame.TeamColor color) throws IOException {
+        String username = color == ChessGame.TeamColor.WHITE ? game.whiteUsername() : game.blackUsername();
+        var message = String.format("%s has joined the game as %s", username, color.toString().toLowerCase());
+        connections.broadcast(game.gameID(), null, new Notification(message));
+        requestBotMove(game);
+    }
+
+    /**
+     * Lets the game's mailbox go once nobody is connected to the game any more
+     */
+    private void retireIfEmpty(GameActors.LiveGame live, int gameID) {
+        if (!connections.hasConnections(gameID)) {
+            live.retire();
+        }
+    }
+
     private void handleError(Session session, String errorString) throws IOException {
         System.out.printf("Error: %s\n", errorString);
         var errorMessage = new ErrorMessage(errorString);
         session.getRemote().sendString(new Gson().toJson(errorMessage));
     }
 
-    private void connect(int gameID, String authToken, Session session) throws IOException, ServerException {
+    private void connect(GameActors.LiveGame live, int gameID, String authToken, Session session) throws IOException, ServerException {
         AuthData auth = authService.getAuth(authToken);
-        GameData game = gameService.getGame(gameID);
+        GameData game = live.get();
         if (game == null) {
             handleError(session, "error: invalid gameID");
             return;
@@ -95,11 +166,13 @@ public class WebSocketHandler {
         var gameMessage = new GameMessage(gameID, teamColor, boardString);
         var loadGame = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, gameMessage);
         connections.send(session, loadGame);
+        //a bot playing white moves once there's someone to see it
+        requestBotMove(game);
     }
 
-    private void leave(int gameID, String authToken, Session session) throws ServerException, IOException {
+    private void leave(GameActors.LiveGame live, int gameID, String authToken, Session session) throws ServerException, IOException {
         AuthData auth = authService.getAuth(authToken);
-        GameData game = gameService.getGame(gameID);
+        GameData game = live.get();
         if (auth == null) {
             handleError(session, "error: invalid auth token");
             return;
@@ -113,15 +186,20 @@ public class WebSocketHandler {
         var notification = new Notification(message);
         connections.broadcast(session, username, notification);
         connections.remove(session);
+        analyses.cancel(session);
         if (userWasPlayer(game, username)) {
             var newGame = removePlayer(game, username);
             gameService.updateGame(authToken, newGame);
+            live.set(newGame);
+            //a bot thinking about its move has no opponent left to play
+            bots.cancel(gameID);
         }
+        retireIfEmpty(live, gameID);
     }
 
-    private void resign(int gameID, String authToken, Session session) throws IOException, ServerException {
+    private void resign(GameActors.LiveGame live, String authToken, Session session) throws IOException, ServerException {
         AuthData auth = authService.getAuth(authToken);
-        GameData game = gameService.getGame(gameID);
+        GameData game = live.get();
         if (auth == null) {
             handleError(session, "error: invalid auth token");
             return;
@@ -137,14 +215,17 @@ public class WebSocketHandler {
         }
         var newGame = endGame(game);
         gameService.updateGame(authToken, newGame);
+        live.set(newGame);
+        live.retire();
+        bots.cancel(game.gameID());
         var message = String.format("%s has resigned", username);
         var notification = new Notification(message);
         connections.broadcast(session, null, notification);
     }
 
-    private void redraw(int gameID, String authToken, Session session) throws ServerException, IOException {
+    private void redraw(GameActors.LiveGame live, int gameID, String authToken, Session session) throws ServerException, IOException {
         AuthData auth = authService.getAuth(authToken);
-        GameData game = gameService.getGame(gameID);
+        GameData game = live.get();
         if (game == null) {
             handleError(session, "error: invalid gameID");
             return;
@@ -162,9 +243,9 @@ public class WebSocketHandler {
         connections.send(session, loadGame);
     }
 
-    private void highlightMoves(int gameID, String authToken, ChessPosition pos, Session session) throws ServerException, IOException {
+    private void highlightMoves(GameActors.LiveGame live, int gameID, String authToken, ChessPosition pos, Session session) throws ServerException, IOException {
         AuthData auth = authService.getAuth(authToken);
-        GameData game = gameService.getGame(gameID);
+        GameData game = live.get();
         if (game == null) {
             handleError(session, "error: invalid gameID");
             return;
@@ -182,9 +263,50 @@ public class WebSocketHandler {
         connections.send(session, loadGame);
     }
 
-    private void makeMove(int gameID, String authToken, ChessMove move, Session session) throws ServerException, IOException {
+    private void analyze(GameActors.LiveGame live, int gameID, String authToken, Session session) throws ServerException, IOException {
+        AuthData auth = authService.getAuth(authToken);
+        GameData game = live.get();
+        if (game == null) {
+            handleError(session, "error: invalid gameID");
+            return;
+        }
+        if (auth == null) {
+            handleError(session, "error: invalid auth token");
+            return;
+        }
+        var connection = connections.connections.get(session);
+        if (connection == null || connection.gameID != gameID) {
+            handleError(session, "error: connect to the game before analyzing it");
+            return;
+        }
+        //the mailbox keeps playing moves on its game, so the analysis gets a copy of its own
+        ChessGame.TeamColor toMove = game.game().getTeamTurn();
+        boolean started = analyses.analyze(session, auth.username(), gameID, game.game().copy(),
+                update -> actors.submit(gameID, ignored -> sendAnalysis(session, toMove, update)));
+        if (!started) {
+            handleError(session, "error: too many analyses running, try again later");
+        }
+    }
+
+    /**
+     * Sends one analysis update from the game's mailbox, so it can't overlap the game's other
+     * messages to the session, or arrive after a move has made it out of date
+     */
+    private void sendAnalysis(Session session, ChessGame.TeamColor toMove, AnalysisPool.Update update) throws IOException {
+        if (update.analysis().isCancelled() || connections.connections.get(session) == null) {
+            return;
+        }
+        var result = update.result();
+        int sign = toMove == ChessGame.TeamColor.WHITE ? 1 : -1;
+        int mateIn = result.mateIn() * sign;
+        var message = new AnalysisMessage(result.depth(), mateIn == 0 ? result.score() * sign : 0, mateIn,
+                result.principalVariation(), result.nodesPerSecond(), update.finished());
+        connections.send(session, message);
+    }
+
+    private void makeMove(GameActors.LiveGame live, String authToken, ChessMove move, Session session) throws ServerException, IOException {
         AuthData auth = authService.getAuth(authToken);
-        GameData game = gameService.getGame(gameID);
+        GameData game = live.get();
         if (auth == null) {
             handleError(session, "error: invalid auth token");
             return;
@@ -207,26 +329,90 @@ public class WebSocketHandler {
         ChessBoard board = game.game().getBoard();
         try {
             GameData newGame = doTheMove(game, board, move);
-            if (isMate(game.game())) {
-                newGame = new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(),
-                        game.gameName(), game.game(), true);
-            }
-            String bothBoardString = createBoardString(newGame, ChessGame.TeamColor.WHITE, null)
-                                    + "SPLITTER"
-                                    + createBoardString(newGame, ChessGame.TeamColor.BLACK, null);
-            var gameMessage = new GameMessage(gameID, teamColor, bothBoardString);
-            var loadGame = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, gameMessage);
-            connections.broadcastNewBoard(session, loadGame);
-            gameService.updateGame(authToken, newGame);
-
-            var message = String.format("%s moved a piece from %s to %s", username,
-                    parsePos(move.getStartPosition().toString()), parsePos(move.getEndPosition().toString()));
-            var notification = new Notification(message);
-            connections.broadcast(session, username, notification);
+            finishMove(live, newGame, authToken, username, teamColor, move);
         } catch (InvalidMoveException ex) {
             handleError(session, "error: invalid move");
         }
     }
+
+    /**
+     * Saves a move that's been made and tells everyone in the game about it, then starts the
+     * next move's search if a bot is to play it
+     *
+     * @param authToken the mover's token, checked again when saving, or null for a bot's move
+     */
+    private void finishMove(GameActors.LiveGame live, GameData game, String authToken, String username,
+                            ChessGame.TeamColor teamColor, ChessMove move) throws ServerException, IOException {
+        int gameID = game.gameID();
+        GameData newGame = game;
+        if (isMate(game.game())) {
+            newGame = new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(),
+                    game.gameName(), game.game(), true);
+        }
+        String bothBoardString = createBoardString(newGame, ChessGame.TeamColor.WHITE, null)
+                                + "SPLITTER"
+                                + createBoardString(newGame, ChessGame.TeamColor.BLACK, null);
+        var gameMessage = new GameMessage(gameID, teamColor, bothBoardString);
+        var loadGame = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, gameMessage);
+        connections.broadcastNewBoard(gameID, loadGame);
+        if (authToken == null) {
+            gameService.updateGame(newGame);
+        } else {
+            gameService.updateGame(authToken, newGame);
+        }
+        live.set(newGame);
+        if (newGame.isOver()) {
+            live.retire();
+        }
+        analyses.cancelGame(gameID);
+
+        var message = String.format("%s moved a piece from %s to %s", username,
+                parsePos(move.getStartPosition().toString()), parsePos(move.getEndPosition().toString()));
+        var notification = new Notification(message);
+        connections.broadcast(gameID, username, notification);
+        requestBotMove(newGame);
+    }
+
+    /**
+     * Queues a search for the side to move if it's a bot's turn. The move comes back through
+     * the game's mailbox like a player's would.
+     */
+    private void requestBotMove(GameData game) {
+        if (game.isOver() || game.game().isGameOver()) {
+            bots.cancel(game.gameID());
+            return;
+        }
+        ChessGame.TeamColor toMove = game.game().getTeamTurn();
+        String username = toMove == ChessGame.TeamColor.WHITE ? game.whiteUsername() : game.blackUsername();
+        BotPlayer bot = BotPlayer.fromUsername(username);
+        if (bot == null) {
+            return;
+        }
+        int gameID = game.gameID();
+        long positionKey = game.game().getPositionKey();
+        bots.request(gameID, game.game().copy(), bot.moveMillis(),
+                move -> actors.submit(gameID, live -> botMove(live, positionKey, move)));
+    }
+
+    private void botMove(GameActors.LiveGame live, long positionKey, ChessMove move) throws ServerException, IOException {
+        GameData game = live.get();
+        //the game may have been resigned or the bot replaced while it was thinking
+        if (game == null || game.isOver() || game.game().getPositionKey() != positionKey) {
+            return;
+        }
+        ChessGame.TeamColor toMove = game.game().getTeamTurn();
+        String username = toMove == ChessGame.TeamColor.WHITE ? game.whiteUsername() : game.blackUsername();
+        if (!BotPlayer.isBot(username)) {
+            return;
+        }
+        try {
+            game.game().makeMove(move);
+        } catch (InvalidMoveException e) {
+            System.out.printf("Error: bot in game %d chose an invalid move %s\n", game.gameID(), move);
+            return;
+        }
+        finishMove(live, game, null, username, toMove, move);
+    }
     //hopefully this works!
     private String parsePos(String pos) {
         int rowIndex = pos.indexOf("row");
@@ -290,13 +476,14 @@ public class WebSocketHandler {
 
     private String createBoardString(GameData gameData, ChessGame.TeamColor color, ChessPosition pos) throws ServerException {
         int gameId = gameData.gameID();
-        String board = gameData.game().getBoard().toString();
-        ChessBoard chessBoard = gameData.game().getBoard();
+        //render from the published snapshot so a move being applied can't show up half made
+        BoardSnapshot snapshot = gameData.game().getSnapshot();
+        String board = snapshot.toString();
         String whiteBoard = reverseBoard(board);
         whiteBoard = addBoardLetters(whiteBoard);
         HashSet<ChessPosition> moves = new HashSet<>();
         if (pos != null) {
-            moves.addAll(getLegalMoves(pos, chessBoard));
+            moves.addAll(getLegalMoves(pos, snapshot));
         }
         if (color == ChessGame.TeamColor.BLACK) {
             return printBoard(rotateBoard(whiteBoard), moves, false);
@@ -305,10 +492,12 @@ public class WebSocketHandler {
         }
     }
 
-    private Collection<ChessPosition> getLegalMoves(ChessPosition pos, ChessBoard board) {
-        var ruleBook = new FIDERuleBook(board);
-        var validMoves = ruleBook.validMoves(pos);
+    private Collection<ChessPosition> getLegalMoves(ChessPosition pos, BoardSnapshot snapshot) {
+        var validMoves = snapshot.validMoves(pos);
         HashSet<ChessPosition> options = new HashSet<>();
+        if (validMoves == null) {
+            return options;
+        }
         for (ChessMove move : validMoves) {
             options.add(move.getEndPosition());
         }
@@ -489,11 +678,6 @@ public class WebSocketHandler {
         return res;
     }
     private boolean isAMove(int row, int col, Collection<ChessPosition> moves) {
-        for (ChessPosition move : moves) {
-            if (move.equals(new ChessPosition(row, col))) {
-                return true;
-            }
-        }
-        return false;
+        return moves.contains(ChessPosition.of(row, col));
     }
 }
\ No newline at end of file
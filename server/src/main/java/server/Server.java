@@ -1,9 +1,15 @@
 package server;
 
+import chess.SharedMoveCache;
+import com.google.gson.Gson;
+import dataaccess.DatabaseGameDAO;
 import dataaccess.ServerException;
 import handler.Handler;
 import handler.WebSocketHandler;
 import spark.*;
+import websocket.GameActors;
+
+import java.util.concurrent.Executors;
 
 public class Server {
     private final Handler handler;
@@ -11,8 +17,10 @@ public class Server {
 
     public Server() {
         try {
-            handler = new Handler();
-            webSocketHandler = new WebSocketHandler();
+            //each game's commands run in order on its own mailbox, the work is mostly waiting on the database
+            GameActors actors = new GameActors(Executors.newVirtualThreadPerTaskExecutor(), new DatabaseGameDAO()::getGame);
+            webSocketHandler = new WebSocketHandler(actors);
+            handler = new Handler(actors, webSocketHandler);
         } catch (ServerException e) {
             throw new RuntimeException(e);
         }
@@ -27,6 +35,8 @@ public class Server {
 
         // Register your endpoints and handle exceptions here.
         Spark.get("/game", handler::listGames);
+        Spark.get("/bot/metrics", (req, res) -> new Gson().toJson(webSocketHandler.getBotMetrics()));
+        Spark.get("/cache/metrics", (req, res) -> new Gson().toJson(SharedMoveCache.shared().getMetrics()));
 
         Spark.post("/user", handler::registerUser);
         Spark.post("/session", handler::loginUser);
@@ -1,9 +1,11 @@
 package service;
 
 import chess.ChessGame;
+import chess.rulebook.Variant;
 import dataaccess.AuthDAO;
 import dataaccess.ServerException;
 import dataaccess.GameDAO;
+import model.BotPlayer;
 import model.GameData;
 import model.JoinGameRequest;
 
@@ -20,23 +22,45 @@ public class GameService {
     }
 
     public int createGame(String authToken, String gameName) throws ServerException {
+        return createGame(authToken, gameName, Variant.STANDARD);
+    }
+
+    public int createGame(String authToken, String gameName, Variant variant) throws ServerException {
         if (isValidAuth(authToken)) {
-            var game = gameDataAccess.createGame(gameName);
+            var game = gameDataAccess.createGame(gameName, variant == null ? Variant.STANDARD : variant);
             return game.gameID();
         }
         throw new ServerException("unauthorized");
     }
 
     public void joinGame(String authToken, JoinGameRequest joinGameRequest) throws ServerException {
+        joinGame(authToken, joinGameRequest, gameDataAccess.getGame(joinGameRequest.gameID()));
+    }
+
+    /**
+     * Seats the player in a game the caller already has, such as the one a game's mailbox
+     * holds, so the seat change is made to the same copy as the game's moves. Only a player
+     * already in the game may seat a bot, as their opponent, so no game is left to bots alone.
+     *
+     * @param gameData the game as the caller has it, or null if there is no such game
+     * @return the game with the player seated, as saved
+     */
+    public GameData joinGame(String authToken, JoinGameRequest joinGameRequest, GameData gameData) throws ServerException {
         if (isValidAuth(authToken)) {
-            if (isValidGameID(joinGameRequest.gameID())) {
-                GameData gameData = getGame(joinGameRequest.gameID());
+            if (gameData != null) {
                 var authData = authDataAccess.getAuth(authToken);
                 if (isValidColor(joinGameRequest.playerColor())) {
                     if (isColorAvailable(gameData, joinGameRequest.playerColor())) {
-                        var newGame = updateGamePlayers(gameData, authData.username(), joinGameRequest.playerColor());
+                        String username = authData.username();
+                        if (joinGameRequest.botMoveMillis() != null) {
+                            if (!username.equals(gameData.whiteUsername()) && !username.equals(gameData.blackUsername())) {
+                                throw new ServerException("unauthorized");
+                            }
+                            username = botUsername(joinGameRequest.botMoveMillis());
+                        }
+                        var newGame = updateGamePlayers(gameData, username, joinGameRequest.playerColor());
                         gameDataAccess.updateGame(gameData.gameID(), newGame);
-                        return;
+                        return newGame;
                     }
                     throw new ServerException("already taken");
                 }
@@ -46,6 +70,14 @@ public class GameService {
         throw new ServerException("unauthorized");
     }
 
+    private String botUsername(long moveMillis) throws ServerException {
+        try {
+            return new BotPlayer(moveMillis).username();
+        } catch (IllegalArgumentException e) {
+            throw new ServerException("bad request");
+        }
+    }
+
     public Collection<GameData> listGames(String authToken) throws ServerException {
         if (isValidAuth(authToken)) {
             return gameDataAccess.listGames();
@@ -62,6 +94,13 @@ public class GameService {
         throw new ServerException("unauthorized");
     }
 
+    /**
+     * Saves a move the server made itself, such as a bot's, which has no auth token to check
+     */
+    public void updateGame(GameData gameData) throws ServerException {
+        gameDataAccess.updateGame(gameData.gameID(), gameData);
+    }
+
     private boolean isValidAuth(String authToken) throws ServerException {
         return authDataAccess.getAuth(authToken) != null;
     }
@@ -70,10 +109,6 @@ public class GameService {
         return gameDataAccess.getGame(gameID);
     }
 
-    private boolean isValidGameID(int gameID) throws ServerException {
-        return gameDataAccess.getGame(gameID) != null;
-    }
-
     private boolean isValidColor(ChessGame.TeamColor color) {
         return color == ChessGame.TeamColor.WHITE || color == ChessGame.TeamColor.BLACK;
     }
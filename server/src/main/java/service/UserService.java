@@ -4,6 +4,7 @@ import dataaccess.AuthDAO;
 import dataaccess.UserDAO;
 import dataaccess.ServerException;
 import model.AuthData;
+import model.BotPlayer;
 import model.UserData;
 import org.mindrot.jbcrypt.BCrypt;
 
@@ -22,6 +23,9 @@ public class UserService {
         if (user.password() == null || user.password().isEmpty()) {
             throw new ServerException("bad request");
         }
+        if (BotPlayer.isBot(user.username())) {
+            throw new ServerException("bad request");
+        }
         var newUser = userDataAccess.addUser(user);
         String authToken = AuthService.generateToken();
         AuthData newAuth = new AuthData(authToken, newUser.username());
@@ -0,0 +1,174 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import org.eclipse.jetty.websocket.api.Session;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs engine analyses of games on a fixed set of threads. Searches are pure CPU, so unlike
+ * the game mailboxes they get platform threads, half as many as the cores by default so bot
+ * searches and the server itself keep the rest, and a bounded queue: when it's full a request
+ * is turned away instead of piling up. A cancelled analysis that hasn't started is taken out
+ * of the queue straight away, so it doesn't hold a place there.
+ * <p>
+ * Each session has at most one analysis, and starting another cancels the first. A user can
+ * run {@link #MAX_PER_USER} at once across all their sessions. Analyses are cancelled when
+ * their session leaves or when a move changes their game's position.
+ */
+public class AnalysisPool {
+    public static final int MAX_PER_USER = 2;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final int TABLE_MEGABYTES = 8;
+    private static final long ANALYSIS_MILLIS = 10_000;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<Session, Analysis> running = new HashMap<>();
+    private final Map<String, Integer> perUser = new HashMap<>();
+
+    public AnalysisPool() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    public AnalysisPool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                task -> Thread.ofPlatform().daemon().name("analysis-" + count.incrementAndGet()).unstarted(task));
+    }
+
+    /**
+     * Queues an analysis of the game, replacing any the session already has
+     *
+     * @param game     the game to analyze, which the analysis takes over
+     * @param onResult called with each iteration's result, then with the final one again with
+     *                 finished set, unless the analysis is cancelled first
+     * @return false if the user is already at their limit or the pool is full
+     */
+    public boolean analyze(Session session, String username, int gameID, ChessGame game, Consumer<Update> onResult) {
+        Analysis analysis = new Analysis(session, username, gameID);
+        synchronized (this) {
+            cancel(session);
+            if (perUser.getOrDefault(username, 0) >= MAX_PER_USER) {
+                return false;
+            }
+            analysis.task = new FutureTask<>(() -> analysis.run(game, onResult), null);
+            try {
+                executor.execute(analysis.task);
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+            running.put(session, analysis);
+            perUser.merge(username, 1, Integer::sum);
+        }
+        return true;
+    }
+
+    /**
+     * Cancels the session's analysis, if it has one
+     */
+    public synchronized void cancel(Session session) {
+        Analysis analysis = running.get(session);
+        if (analysis != null) {
+            analysis.cancel();
+            finished(analysis);
+        }
+    }
+
+    /**
+     * Cancels every analysis of the game, since they're about a position it's no longer in
+     */
+    public synchronized void cancelGame(int gameID) {
+        for (Analysis analysis : running.values().toArray(new Analysis[0])) {
+            if (analysis.gameID == gameID) {
+                analysis.cancel();
+                finished(analysis);
+            }
+        }
+    }
+
+    private synchronized void finished(Analysis analysis) {
+        if (running.remove(analysis.session, analysis)) {
+            perUser.computeIfPresent(analysis.username, (user, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * @param result   the search result, scored from the side to move's point of view
+     * @param finished whether this is the analysis's last update
+     */
+    public record Update(Analysis analysis, SearchResult result, boolean finished) {
+    }
+
+    public class Analysis {
+        private final Session session;
+        private final String username;
+        private final int gameID;
+        private volatile Engine engine;
+        private volatile boolean cancelled;
+        private FutureTask<?> task;
+
+        private Analysis(Session session, String username, int gameID) {
+            this.session = session;
+            this.username = username;
+            this.gameID = gameID;
+        }
+
+        /**
+         * @return true once the analysis has been cancelled, so an update still on its way
+         * to the client can be dropped
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void run(ChessGame game, Consumer<Update> onResult) {
+            try {
+                if (cancelled) {
+                    return;
+                }
+                //the table is only allocated once the analysis gets a thread
+                engine = new Engine(TABLE_MEGABYTES);
+                if (cancelled) {
+                    return;
+                }
+                SearchResult result = engine.search(game, SearchLimits.time(ANALYSIS_MILLIS), iteration -> {
+                    if (cancelled) {
+                        //a cancel that came just before the search started had nothing to stop
+                        engine.stop();
+                        return;
+                    }
+                    onResult.accept(new Update(this, iteration, false));
+                });
+                if (result != null && !cancelled) {
+                    onResult.accept(new Update(this, result, true));
+                }
+            } finally {
+                finished(this);
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            Engine current = engine;
+            if (current != null) {
+                current.stop();
+            }
+            //one that's still queued would otherwise keep its place until a thread took it
+            if (task.cancel(false)) {
+                executor.remove(task);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Finds moves for bot players on a fixed set of worker threads, which caps how many bot
+ * searches run at once however many games have bots in them.
+ * <p>
+ * Waiting games are served in the order they asked, and a game is in the queue at most once,
+ * since only one side is to move. Asking again before a game's turn came round replaces its
+ * request but keeps the place it already had, since putting a key that's already in a
+ * {@link LinkedHashMap} doesn't change its order. A busy game can't get ahead of the others
+ * that way, or pile up stale searches.
+ * <p>
+ * Cancelling a game drops its queued request and stops its running search, and a search
+ * that's been cancelled or asked for again while it ran doesn't report its move.
+ * <p>
+ * A bot's time budget starts when its search does, so time spent waiting in the queue isn't
+ * taken from its thinking time; {@link #getMetrics()} reports the two separately, over the
+ * moves that were reported.
+ */
+public class BotScheduler {
+    private static final int TABLE_MEGABYTES = 16;
+
+    private final LinkedHashMap<Integer, Request> queue = new LinkedHashMap<>();
+    //position key each game's queued or running search is for, so asking twice is harmless
+    private final HashMap<Integer, Long> pending = new HashMap<>();
+    //the engine searching for each game right now, so cancelling can stop it
+    private final HashMap<Integer, Engine> running = new HashMap<>();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicInteger searching = new AtomicInteger();
+    private final int maxSearches;
+
+    public BotScheduler() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * @param maxSearches how many bot searches may run at once
+     */
+    public BotScheduler(int maxSearches) {
+        this.maxSearches = maxSearches;
+        for (int i = 1; i <= maxSearches; i++) {
+            Thread.ofPlatform().daemon().name("bot-" + i).start(this::work);
+        }
+    }
+
+    /**
+     * Queues a search for the side to move in the game, unless one for the same position is
+     * already queued or running
+     *
+     * @param game   the game to search, which the scheduler takes over
+     * @param onMove called on a worker thread with the move the bot chose
+     */
+    public void request(int gameID, ChessGame game, long moveMillis, Consumer<ChessMove> onMove) {
+        long positionKey = game.getPositionKey();
+        synchronized (queue) {
+            Long pendingKey = pending.put(gameID, positionKey);
+            if (pendingKey != null && pendingKey == positionKey) {
+                return;
+            }
+            queue.put(gameID, new Request(gameID, positionKey, game, moveMillis, onMove, System.nanoTime()));
+            queue.notify();
+        }
+    }
+
+    /**
+     * Drops the game's queued request, or stops its search if it's already running, so its
+     * move is never reported
+     */
+    public void cancel(int gameID) {
+        synchronized (queue) {
+            queue.remove(gameID);
+            pending.remove(gameID);
+            Engine engine = running.remove(gameID);
+            if (engine != null) {
+                engine.stop();
+            }
+        }
+    }
+
+    /**
+     * @param moves               how many moves bots have made, not counting cancelled searches
+     * @param queued              games waiting for a worker right now
+     * @param searching           searches running right now
+     * @param maxSearches         the cap on running searches
+     * @param averageWaitMillis   average time from request to search start
+     * @param maxWaitMillis       longest time from request to search start
+     * @param averageSearchMillis average time spent searching
+     */
+    public record Metrics(long moves, int queued, int searching, int maxSearches,
+                          double averageWaitMillis, long maxWaitMillis, double averageSearchMillis) {
+    }
+
+    public Metrics getMetrics() {
+        int queued;
+        synchronized (queue) {
+            queued = queue.size();
+        }
+        long count = moves.sum();
+        double averageWait = count == 0 ? 0 : waitNanos.sum() / 1e6 / count;
+        double averageSearch = count == 0 ? 0 : searchNanos.sum() / 1e6 / count;
+        return new Metrics(count, queued, searching.get(), maxSearches, averageWait,
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()), averageSearch);
+    }
+
+    private record Request(int gameID, long positionKey, ChessGame game, long moveMillis,
+                           Consumer<ChessMove> onMove, long queuedAt) {
+    }
+
+    private Request take(Engine engine) throws InterruptedException {
+        synchronized (queue) {
+            while (queue.isEmpty()) {
+                queue.wait();
+            }
+            Iterator<Request> oldest = queue.values().iterator();
+            Request request = oldest.next();
+            oldest.remove();
+            running.put(request.gameID(), engine);
+            return request;
+        }
+    }
+
+    /**
+     * @return whether the engine's search for the game is still wanted, false once the game was
+     * cancelled or another search for it started
+     */
+    private boolean isRunning(int gameID, Engine engine) {
+        synchronized (queue) {
+            return running.get(gameID) == engine;
+        }
+    }
+
+    private void work() {
+        //each worker keeps its own table from move to move, a game's next search often lands on the same worker
+        Engine engine = new Engine(TABLE_MEGABYTES);
+        while (true) {
+            Request request;
+            try {
+                request = take(engine);
+            } catch (InterruptedException e) {
+                return;
+            }
+            int gameID = request.gameID();
+            long start = System.nanoTime();
+            long wait = start - request.queuedAt();
+            searching.incrementAndGet();
+            try {
+                SearchResult result = engine.search(request.game(), SearchLimits.time(request.moveMillis()), iteration -> {
+                    if (!isRunning(gameID, engine)) {
+                        //a cancel that came just before the search started had nothing to stop
+                        engine.stop();
+                    }
+                });
+                long searched = System.nanoTime() - start;
+                boolean wanted;
+                synchronized (queue) {
+                    wanted = running.remove(gameID, engine);
+                }
+                if (wanted && result != null && result.bestMove() != null) {
+                    request.onMove().accept(result.bestMove());
+                    moves.increment();
+                    waitNanos.add(wait);
+                    searchNanos.add(searched);
+                    maxWaitNanos.accumulateAndGet(wait, Math::max);
+                }
+            } catch (RuntimeException e) {
+                System.out.printf("Error in bot search: %s\n", e);
+            } finally {
+                synchronized (queue) {
+                    running.remove(gameID, engine);
+                    pending.remove(gameID, request.positionKey());
+                }
+                searching.decrementAndGet();
+            }
+        }
+    }
+}
@@ -35,11 +35,31 @@ public class ConnectionManager {
         connections.remove(session);
     }
 
+    /**
+     * @return whether any open session is connected to the game
+     */
+    public boolean hasConnections(int gameID) {
+        for (var c : connections.values()) {
+            if (c.gameID == gameID && c.session.isOpen()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void broadcast(Session currentSession, String excludeUsername, ServerMessage serverMessage) throws IOException {
+        broadcast(connections.get(currentSession).gameID, excludeUsername, serverMessage);
+    }
+
+    /**
+     * Sends to everyone connected to the game, for messages that don't come from a session,
+     * like a bot's move
+     */
+    public void broadcast(int currentGameID, String excludeUsername, ServerMessage serverMessage) throws IOException {
         var removeList = new ArrayList<Connection>();
         for (var c : connections.values()) {
             if (c.session.isOpen()) {
-                boolean sameGame = connections.get(c.session).gameID == connections.get(currentSession).gameID;
+                boolean sameGame = c.gameID == currentGameID;
                 if (!c.username.equals(excludeUsername) && sameGame) {
                     c.send(serverMessage.toString());
                 }
@@ -55,12 +75,16 @@ public class ConnectionManager {
     }
 
     public void broadcastNewBoard(Session currentSession, LoadGameMessage loadGameMessage) throws IOException, ServerException {
+        broadcastNewBoard(connections.get(currentSession).gameID, loadGameMessage);
+    }
+
+    public void broadcastNewBoard(int currentGameID, LoadGameMessage loadGameMessage) throws IOException, ServerException {
         var removeList = new ArrayList<Connection>();
         for (var c : connections.values()) {
             if (c.session.isOpen()) {
-                int gameID = connections.get(c.session).gameID;
-                String username = connections.get(c.session).username;
-                boolean sameGame = gameID == connections.get(currentSession).gameID;
+                int gameID = c.gameID;
+                String username = c.username;
+                boolean sameGame = gameID == currentGameID;
                 if (sameGame) {
                     ChessGame.TeamColor tColor = getTeamColor(username, gameID);
                     String[] boards = loadGameMessage.getGame().boardString().split("SPLITTER");
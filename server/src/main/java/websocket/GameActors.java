@@ -0,0 +1,188 @@
+package websocket;
+
+import dataaccess.ServerException;
+import model.GameData;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gives every game an actor: a mailbox that runs the work for the game one task at a time in
+ * the order it arrived, and that owns the live game while it has work. Different games run
+ * in parallel on the shared executor.
+ * <p>
+ * The game is loaded from the database by the first task that asks for it and kept in the
+ * mailbox from then on, so every change to a game, moves and seat changes alike, is made to
+ * the same copy by one task at a time, then saved. A task that fails drops the copy, so the
+ * next one starts again from what was saved.
+ * <p>
+ * Submitting adds to the mailbox's lock-free queue and schedules the mailbox if it isn't
+ * already scheduled; the only lock is the map's own, held just long enough that a mailbox
+ * being removed can't take a new task with it. A mailbox only holds a thread while it has
+ * work, and hands the thread back after
+ * a batch so a busy game can't starve the others. Once it's out of work it's removed if its
+ * game was never loaded or a task asked for that with {@link LiveGame#retire()}, such as when
+ * the game ends or the last player disconnects.
+ */
+public class GameActors {
+    private static final int BATCH_SIZE = 32;
+
+    public interface GameLoader {
+        GameData load(int gameID) throws ServerException;
+    }
+
+    public interface GameTask {
+        void run(LiveGame game) throws Exception;
+    }
+
+    private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private final GameLoader loader;
+
+    public GameActors(Executor executor, GameLoader loader) {
+        this.executor = executor;
+        this.loader = loader;
+    }
+
+    public void submit(int gameID, GameTask task) {
+        //queued inside compute so a mailbox can't be removed between being found and getting the task
+        Mailbox mailbox = mailboxes.compute(gameID, (id, existing) -> {
+            Mailbox target = existing == null ? new Mailbox(id) : existing;
+            target.tasks.add(task);
+            return target;
+        });
+        mailbox.schedule();
+    }
+
+    /**
+     * Runs the task on the game's mailbox and waits for it to finish, for callers such as HTTP
+     * requests that have to answer with the result
+     *
+     * @throws ServerException the task's own, or one wrapping whatever else it threw
+     */
+    public void call(int gameID, GameTask task) throws ServerException {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        submit(gameID, game -> {
+            try {
+                task.run(game);
+                done.complete(null);
+            } catch (Exception e) {
+                done.completeExceptionally(e);
+                throw e;
+            }
+        });
+        try {
+            done.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ServerException serverException) {
+                throw serverException;
+            }
+            throw new ServerException(e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerException("interrupted");
+        }
+    }
+
+    /**
+     * @return how many games have a mailbox right now
+     */
+    public int size() {
+        return mailboxes.size();
+    }
+
+    /**
+     * The game as its mailbox holds it. Only the mailbox's own tasks see it, one at a time.
+     */
+    public class LiveGame {
+        private final int gameID;
+        private GameData game;
+        private boolean retiring;
+
+        private LiveGame(int gameID) {
+            this.gameID = gameID;
+        }
+
+        /**
+         * @return the game, loaded from the database the first time, or null if there's no such game
+         */
+        public GameData get() throws ServerException {
+            if (game == null) {
+                game = loader.load(gameID);
+            }
+            return game;
+        }
+
+        /**
+         * Replaces the game after a change that's been saved, such as a new player
+         */
+        public void set(GameData game) {
+            this.game = game;
+        }
+
+        /**
+         * Drops the game after a change that couldn't be saved, so the next task loads it again
+         */
+        public void forget() {
+            game = null;
+        }
+
+        /**
+         * Lets the mailbox go once it's out of work, since nothing more is expected of the
+         * game for now. A command that comes later loads it again.
+         */
+        public void retire() {
+            retiring = true;
+        }
+    }
+
+    private class Mailbox implements Runnable {
+        private final int gameID;
+        private final Queue<GameTask> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final LiveGame live;
+
+        Mailbox(int gameID) {
+            this.gameID = gameID;
+            this.live = new LiveGame(gameID);
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                GameTask task = tasks.poll();
+                if (task == null) {
+                    break;
+                }
+                try {
+                    task.run(live);
+                } catch (Exception e) {
+                    live.forget();
+                    System.out.printf("Error in game %d: %s\n", gameID, e);
+                }
+            }
+            if (live.retiring || live.game == null) {
+                //only once the queue is empty, and atomically with submit, so nothing is left behind
+                mailboxes.computeIfPresent(gameID, (id, mailbox) -> mailbox == this && tasks.isEmpty() ? null : mailbox);
+                //a later task decides again whether the game is still needed
+                live.retiring = false;
+            }
+            scheduled.set(false);
+            //a task may have arrived after the last poll but before scheduled was cleared
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import chess.ChessGame;
 import dataaccess.*;
 import handler.Handler;
 import model.AuthData;
+import model.BotPlayer;
 import model.JoinGameRequest;
 import model.UserData;
 import org.junit.jupiter.api.BeforeEach;
@@ -164,6 +165,23 @@ public class ServiceTests {
         assertDoesNotThrow(()-> GAME_SERVICE.joinGame(auth.authToken(), new JoinGameRequest(ChessGame.TeamColor.WHITE, id)));
     }
 
+    @Test
+    void joinGameAsBot() throws ServerException {
+        var auth = addUser();
+        int id = createTestGame(auth);
+        var bot = new JoinGameRequest(ChessGame.TeamColor.BLACK, id, 500L);
+        assertThrows(ServerException.class, () -> GAME_SERVICE.joinGame(auth.authToken(), bot));
+        GAME_SERVICE.joinGame(auth.authToken(), new JoinGameRequest(ChessGame.TeamColor.WHITE, id));
+        var tooFast = new JoinGameRequest(ChessGame.TeamColor.BLACK, id, 1L);
+        assertThrows(ServerException.class, () -> GAME_SERVICE.joinGame(auth.authToken(), tooFast));
+        GAME_SERVICE.joinGame(auth.authToken(), bot);
+        var game = GAME_SERVICE.getGame(id);
+        assertEquals(new BotPlayer(500), BotPlayer.fromUsername(game.blackUsername()));
+        assertEquals(auth.username(), game.whiteUsername());
+        var botName = new UserData(game.blackUsername(), "password", "example@mail.com");
+        assertThrows(ServerException.class, () -> USER_SERVICE.register(botName));
+    }
+
     @Test
     void joinGameFail() throws ServerException {
         var auth = addUser();
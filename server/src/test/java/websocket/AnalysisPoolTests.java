@@ -0,0 +1,75 @@
+package websocket;
+
+import chess.ChessGame;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalysisPoolTests {
+
+    private static Session session() {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "session";
+                    default -> null;
+                });
+    }
+
+    @Test
+    void userLimitCountsEverySession() {
+        var pool = new AnalysisPool(1);
+        Session first = session();
+        for (int i = 0; i < AnalysisPool.MAX_PER_USER; i++) {
+            assertTrue(pool.analyze(i == 0 ? first : session(), "user", 1, new ChessGame(), update -> { }));
+        }
+        assertFalse(pool.analyze(session(), "user", 1, new ChessGame(), update -> { }));
+        assertTrue(pool.analyze(session(), "other", 1, new ChessGame(), update -> { }));
+
+        //a session starting again replaces its own analysis rather than adding one
+        assertTrue(pool.analyze(first, "user", 1, new ChessGame(), update -> { }));
+        pool.cancel(first);
+        assertTrue(pool.analyze(session(), "user", 1, new ChessGame(), update -> { }));
+        pool.cancelGame(1);
+    }
+
+    @Test
+    void moveCancelsTheGamesAnalyses() throws InterruptedException {
+        var pool = new AnalysisPool(1);
+        CountDownLatch started = new CountDownLatch(1);
+        assertTrue(pool.analyze(session(), "user", 1, new ChessGame(), update -> started.countDown()));
+        assertTrue(pool.analyze(session(), "user", 1, new ChessGame(), update -> { }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        pool.cancelGame(1);
+        //both places are free again, and the search that was running gives up the only thread
+        CountDownLatch next = new CountDownLatch(1);
+        assertTrue(pool.analyze(session(), "user", 2, new ChessGame(), update -> next.countDown()));
+        assertTrue(pool.analyze(session(), "user", 2, new ChessGame(), update -> { }));
+        assertTrue(next.await(5, TimeUnit.SECONDS));
+        pool.cancelGame(2);
+    }
+
+    @Test
+    void cancelledAnalysesLeaveTheQueue() throws InterruptedException {
+        var pool = new AnalysisPool(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Session busy = session();
+        assertTrue(pool.analyze(busy, "busy", 1, new ChessGame(), update -> started.countDown()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        //far more than the queue holds, each cancelled before the thread is free to take it
+        for (int i = 0; i < 500; i++) {
+            Session waiting = session();
+            assertTrue(pool.analyze(waiting, "user" + i, 2, new ChessGame(), update -> { }), "analysis " + i);
+            pool.cancel(waiting);
+        }
+        pool.cancel(busy);
+    }
+}
@@ -0,0 +1,108 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import model.BotPlayer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BotSchedulerTests {
+    private static final long LONG_MILLIS = 30_000;
+
+    private static void awaitSearching(BotScheduler bots, int searching) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (bots.getMetrics().searching() != searching) {
+            assertTrue(System.currentTimeMillis() < deadline, "never had " + searching + " searches running");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void onlyBotUsernamesNameABot() {
+        assertEquals(new BotPlayer(500), BotPlayer.fromUsername(new BotPlayer(500).username()));
+        assertNull(BotPlayer.fromUsername("bot:500xx"));
+        assertNull(BotPlayer.fromUsername("bot:ms"));
+        assertNull(BotPlayer.fromUsername("bot:10ms"));
+        assertNull(BotPlayer.fromUsername("player500ms"));
+    }
+
+    @Test
+    void botFindsALegalMove() throws InterruptedException {
+        var bots = new BotScheduler(1);
+        var game = new ChessGame();
+        CountDownLatch moved = new CountDownLatch(1);
+        List<ChessMove> moves = new CopyOnWriteArrayList<>();
+        bots.request(1, game.copy(), 50, move -> {
+            moves.add(move);
+            moved.countDown();
+        });
+        assertTrue(moved.await(5, TimeUnit.SECONDS));
+        assertTrue(game.validMoves(moves.getFirst().getStartPosition()).contains(moves.getFirst()));
+        awaitSearching(bots, 0);
+        assertEquals(1, bots.getMetrics().moves());
+    }
+
+    @Test
+    void cancelStopsTheRunningSearch() throws InterruptedException {
+        var bots = new BotScheduler(1);
+        List<ChessMove> cancelled = new CopyOnWriteArrayList<>();
+        bots.request(1, new ChessGame(), LONG_MILLIS, cancelled::add);
+        awaitSearching(bots, 1);
+        bots.cancel(1);
+
+        //the only worker is free again long before the cancelled search would have finished
+        CountDownLatch moved = new CountDownLatch(1);
+        bots.request(2, new ChessGame(), 50, move -> moved.countDown());
+        assertTrue(moved.await(5, TimeUnit.SECONDS));
+        awaitSearching(bots, 0);
+        assertTrue(cancelled.isEmpty());
+        assertEquals(1, bots.getMetrics().moves());
+    }
+
+    @Test
+    void repeatRequestKeepsItsPlace() throws InterruptedException, InvalidMoveException {
+        var bots = new BotScheduler(1);
+        bots.request(1, new ChessGame(), LONG_MILLIS, move -> { });
+        awaitSearching(bots, 1);
+
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch moved = new CountDownLatch(2);
+        bots.request(2, new ChessGame(), 20, move -> order.add(-2));
+        bots.request(3, new ChessGame(), 20, move -> {
+            order.add(3);
+            moved.countDown();
+        });
+        //a new position for game 2 replaces its request without sending it behind game 3
+        var later = new ChessGame();
+        later.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        bots.request(2, later, 20, move -> {
+            order.add(2);
+            moved.countDown();
+        });
+        assertEquals(2, bots.getMetrics().queued());
+
+        bots.cancel(1);
+        assertTrue(moved.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(2, 3), order);
+    }
+
+    @Test
+    void samePositionIsOnlySearchedOnce() throws InterruptedException {
+        var bots = new BotScheduler(1);
+        bots.request(1, new ChessGame(), LONG_MILLIS, move -> { });
+        awaitSearching(bots, 1);
+        bots.request(1, new ChessGame(), LONG_MILLIS, move -> { });
+        assertEquals(0, bots.getMetrics().queued());
+        bots.cancel(1);
+        awaitSearching(bots, 0);
+        assertEquals(0, bots.getMetrics().moves());
+    }
+}
@@ -0,0 +1,83 @@
+package websocket;
+
+import chess.ChessGame;
+import dataaccess.ServerException;
+import model.GameData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameActorsTests {
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private GameData load(int gameID) throws ServerException {
+        loads.incrementAndGet();
+        if (gameID < 0) {
+            return null;
+        }
+        return new GameData(gameID, null, null, "game " + gameID, new ChessGame(), false);
+    }
+
+    @Test
+    void gameIsLoadedOnceAndKept() throws ServerException {
+        var actors = new GameActors(Runnable::run, this::load);
+        actors.call(1, live -> live.get());
+        actors.call(1, live -> live.set(new GameData(1, "white", null, "game 1", new ChessGame(), false)));
+        actors.call(1, live -> assertEquals("white", live.get().whiteUsername()));
+        assertEquals(1, loads.get());
+        assertEquals(1, actors.size());
+    }
+
+    @Test
+    void failedTaskReloads() throws ServerException {
+        var actors = new GameActors(Runnable::run, this::load);
+        actors.call(1, live -> live.set(new GameData(1, "white", null, "game 1", new ChessGame(), false)));
+        assertThrows(ServerException.class, () -> actors.call(1, live -> {
+            throw new ServerException("not saved");
+        }));
+        //the change that was never saved is gone, the game comes back from the loader
+        actors.call(1, live -> assertNull(live.get().whiteUsername()));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void retiredMailboxIsRemoved() throws ServerException {
+        var actors = new GameActors(Runnable::run, this::load);
+        actors.call(1, live -> live.get());
+        actors.call(2, live -> live.get());
+        assertEquals(2, actors.size());
+        actors.call(1, live -> live.retire());
+        assertEquals(1, actors.size());
+        //a game that was never loaded, or doesn't exist, isn't kept either
+        actors.call(3, live -> { });
+        actors.call(-1, live -> assertNull(live.get()));
+        assertEquals(1, actors.size());
+        //a later command starts again from what was saved
+        actors.call(1, live -> assertNotNull(live.get()));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void tasksRunInOrder() throws ServerException {
+        var actors = new GameActors(Executors.newVirtualThreadPerTaskExecutor(), this::load);
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            actors.submit(1, live -> {
+                live.get();
+                order.add(n);
+            });
+        }
+        actors.call(1, live -> order.add(100));
+        assertEquals(101, order.size());
+        for (int i = 0; i <= 100; i++) {
+            assertEquals(i, order.get(i));
+        }
+        assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,105 @@
+package chess;
+
+import chess.rulebook.CastlingTable;
+import chess.rulebook.Variant;
+
+import java.util.Collection;
+
+/**
+ * An unchanging copy of a game's position, safe to read from any thread while the game
+ * goes on. {@link ChessGame} publishes a new one after each move (see
+ * {@link ChessGame#getSnapshot()}), so readers such as rendering or highlighting always see
+ * a whole position rather than one halfway through a move.
+ * <p>
+ * A board is a dozen longs, so a snapshot copies it outright rather than sharing structure
+ * with the live board.
+ */
+public final class BoardSnapshot {
+    private final ChessBoard board;
+    private final ChessGame.TeamColor teamTurn;
+    private final int castlingRights;
+    private final int enPassantSquare;
+    private final int halfmoveClock;
+    private final long positionKey;
+    private final int ply;
+    private final Variant variant;
+    private final CastlingTable castling;
+
+    BoardSnapshot(ChessGame game, int ply) {
+        this.board = new ChessBoard(game.getBoard());
+        this.teamTurn = game.getTeamTurn();
+        this.castlingRights = game.getRuleBook().getCastlingRights();
+        this.enPassantSquare = game.getRuleBook().getEnPassantSquare();
+        this.halfmoveClock = game.getHalfmoveClock();
+        this.positionKey = game.getPositionKey();
+        this.ply = ply;
+        this.variant = game.getRuleBook().getVariant();
+        this.castling = game.getRuleBook().getCastlingTable();
+    }
+
+    public ChessPiece getPiece(ChessPosition position) {
+        return board.getPiece(position);
+    }
+
+    public ChessGame.TeamColor getTeamTurn() {
+        return teamTurn;
+    }
+
+    public String getFen() {
+        return Fen.write(board, teamTurn, castlingRights, enPassantSquare, halfmoveClock);
+    }
+
+    public long getPositionKey() {
+        return positionKey;
+    }
+
+    /**
+     * @return how many moves into the game this position is
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * @return a copy of the board that the caller is free to change
+     */
+    public ChessBoard toBoard() {
+        return new ChessBoard(board);
+    }
+
+    /**
+     * @return a new game in this position and variant, without the history leading up to it
+     */
+    public ChessGame toGame() {
+        return Fen.load(getFen(), new ChessGame(new ChessBoard(), variant, castling));
+    }
+
+    /**
+     * Gets the legal moves of the piece at position. The side to move's moves are usually in
+     * the {@link SharedMoveCache} already, put there by the game itself, so the game is only
+     * rebuilt from FEN when they aren't or when the piece is the other side's.
+     *
+     * @return the legal moves of the piece at position, or null if there is no piece there
+     */
+    public Collection<ChessMove> validMoves(ChessPosition position) {
+        ChessPiece piece = board.getPiece(position);
+        if (piece == null) {
+            return null;
+        }
+        if (piece.getTeamColor() == teamTurn) {
+            int[] moves = SharedMoveCache.shared().get(positionKey, board.getOccupied());
+            if (moves != null) {
+                return ChessGame.movesFrom(moves, position.getSquare());
+            }
+        }
+        return toGame().validMoves(position);
+    }
+
+    /**
+     * @return the board in the same format as {@link ChessBoard#toString()}
+     */
+    @Override
+    public String toString() {
+        return board.toString();
+    }
+}
@@ -1,9 +1,9 @@
 package chess;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
@@ -12,17 +12,72 @@ import java.util.Map;
  * signature of the existing methods.
  */
 public class ChessBoard {
-    private final Map<ChessPosition, ChessPiece> pieces;
-    private final Map<ChessPiece, ChessPosition> positions;
+    //the game phase with every piece on the board, see getGamePhase
+    public static final int OPENING_PHASE = 24;
+    private static final int PIECE_KINDS = 12;
+    private static final ChessPiece[] PIECES = new ChessPiece[PIECE_KINDS];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                PIECES[pieceIndex(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
+    //one bitboard per color and piece type, bit 0 is a1 (row 1, col 1) and bit 63 is h8
+    private final long[] pieceBoards;
+    private final long[] colorBoards;
+    private long occupied;
+
+    //everything below is worked out from the bitboards, so it isn't saved; rehash recomputes it when a board is read
+
+    //piece index + 1 of whatever is on each square, 0 when it's empty, so lookups by square don't search the bitboards
+    private final transient byte[] squares;
+    //Zobrist key of the pieces alone, kept up to date by addPiece and removePiece
+    private transient long zobristKey;
+    //material and piece-square totals from white's side, and the game phase, kept the same way
+    private transient int midgameScore;
+    private transient int endgameScore;
+    private transient int phase;
 
     public ChessBoard() {
-        pieces = new HashMap<>();
-        positions = new HashMap<>();
+        pieceBoards = new long[PIECE_KINDS];
+        colorBoards = new long[2];
+        squares = new byte[64];
     }
 
     public ChessBoard(ChessBoard board) {
-        this.pieces = new HashMap<>(board.pieces);
-        this.positions = new HashMap<>(board.positions);
+        this.pieceBoards = board.pieceBoards.clone();
+        this.colorBoards = board.colorBoards.clone();
+        this.occupied = board.occupied;
+        this.squares = board.squares.clone();
+        this.zobristKey = board.zobristKey;
+        this.midgameScore = board.midgameScore;
+        this.endgameScore = board.endgameScore;
+        this.phase = board.phase;
+    }
+
+    public static int squareIndex(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    public static int squareIndex(ChessPosition position) {
+        return position.getSquare();
+    }
+
+    public static ChessPosition positionOf(int square) {
+        return ChessPosition.fromSquare(square);
+    }
+
+    private static boolean onBoard(ChessPosition position) {
+        int row = position.getRow();
+        int col = position.getColumn();
+        return row > 0 && row < 9 && col > 0 && col < 9;
+    }
+
+    private static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
     }
 
     /**
@@ -32,19 +87,45 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        pieces.put(position, piece);
-        positions.put(piece, position);
+        if (!onBoard(position)) {
+            throw new IllegalArgumentException("Position is off the board: " + position);
+        }
+        removePiece(position);
+        if (piece == null) {
+            return;
+        }
+        int square = squareIndex(position);
+        long bit = 1L << square;
+        int pieceIndex = pieceIndex(piece.getTeamColor(), piece.getPieceType());
+        pieceBoards[pieceIndex] |= bit;
+        colorBoards[piece.getTeamColor().ordinal()] |= bit;
+        occupied |= bit;
+        squares[square] = (byte) (pieceIndex + 1);
+        zobristKey ^= Zobrist.piece(pieceIndex, square);
+        midgameScore += PieceSquareTables.midgame(pieceIndex, square);
+        endgameScore += PieceSquareTables.endgame(pieceIndex, square);
+        phase += PieceSquareTables.phase(pieceIndex);
     }
 
     public void removePiece(ChessPosition position) {
-        ChessPiece removedPiece = pieces.remove(position);
-        for (ChessPiece key : positions.keySet()) {
-            ChessPosition value = positions.get(key);
-            if (value.equals(position)) {
-                positions.remove(key);
-                break;
-            }
+        if (!onBoard(position)) {
+            return;
+        }
+        int square = squareIndex(position);
+        int pieceIndex = squares[square] - 1;
+        if (pieceIndex < 0) {
+            return;
         }
+        long clear = ~(1L << square);
+        pieceBoards[pieceIndex] &= clear;
+        colorBoards[0] &= clear;
+        colorBoards[1] &= clear;
+        occupied &= clear;
+        squares[square] = 0;
+        zobristKey ^= Zobrist.piece(pieceIndex, square);
+        midgameScore -= PieceSquareTables.midgame(pieceIndex, square);
+        endgameScore -= PieceSquareTables.endgame(pieceIndex, square);
+        phase -= PieceSquareTables.phase(pieceIndex);
     }
 
     /**
@@ -55,32 +136,134 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return pieces.get(position);
+        if (!onBoard(position)) {
+            return null;
+        }
+        return getPiece(squareIndex(position));
+    }
+
+    public ChessPiece getPiece(int square) {
+        int pieceIndex = squares[square] - 1;
+        return pieceIndex < 0 ? null : PIECES[pieceIndex];
     }
 
     public ChessPosition getPosition(ChessPiece piece) {
-        return positions.get(piece);
+        long pieceBoard = getPieceBitboard(piece.getTeamColor(), piece.getPieceType());
+        if (pieceBoard == 0) {
+            return null;
+        }
+        return positionOf(Long.numberOfTrailingZeros(pieceBoard));
     }
 
-    public Collection<ChessPosition> getAllPiecesByColor(ChessGame.TeamColor color) {
-        Collection<ChessPosition> allPieces = new HashSet<>();
-        for (ChessPosition key : pieces.keySet()) {
-            ChessPiece value = pieces.get(key);
-            if (value.getTeamColor() == color) {
-                allPieces.add(key);
+    /**
+     * @return the 0..63 index of the team's king, or -1 if it has none
+     */
+    public int getKingSquare(ChessGame.TeamColor color) {
+        long king = getPieceBitboard(color, ChessPiece.PieceType.KING);
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    public long getPieceBitboard(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieceBoards[pieceIndex(color, type)];
+    }
+
+    public long getColorBitboard(ChessGame.TeamColor color) {
+        return colorBoards[color.ordinal()];
+    }
+
+    public long getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * Gets how many of each piece are on the board, packed 5 bits per color and type in
+     * {@link #getPieceBitboard} order (counts above 31 read as 31). The bitboards are kept up
+     * to date on every change, so this is twelve popcounts rather than a scan.
+     */
+    public long getMaterialSignature() {
+        long signature = 0;
+        for (int i = 0; i < PIECE_KINDS; i++) {
+            signature |= (long) Math.min(Long.bitCount(pieceBoards[i]), 31) << (i * 5);
+        }
+        return signature;
+    }
+
+    /**
+     * @return how many of the piece are on the board, read from a material signature
+     */
+    public static int pieceCount(long materialSignature, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return (int) (materialSignature >>> (pieceIndex(color, type) * 5)) & 31;
+    }
+
+    /**
+     * @return the Zobrist key of the pieces on the board. Side to move, castling and en passant
+     * aren't board state, see {@link ChessGame#getPositionKey()} for a key that includes them.
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Gets the material and piece-square score as it would be with every piece still on the
+     * board, in centipawns from white's point of view. Kept up to date on every change, like
+     * the Zobrist key.
+     */
+    public int getMidgameScore() {
+        return midgameScore;
+    }
+
+    /**
+     * Gets the material and piece-square score as it would be with only kings and pawns left
+     */
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * Gets how much material is left to weigh {@link #getMidgameScore} against
+     * {@link #getEndgameScore}: each knight and bishop counts 1, rook 2 and queen 4, so the
+     * starting position is {@link #OPENING_PHASE} and bare kings and pawns are 0. Promotions
+     * can take it past the opening phase.
+     */
+    public int getGamePhase() {
+        return phase;
+    }
+
+    /**
+     * Recomputes the Zobrist key, square lookup and scores from the bitboards, for boards read
+     * from JSON, which only stores the bitboards
+     */
+    public void rehash() {
+        zobristKey = 0;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        Arrays.fill(squares, (byte) 0);
+        for (int i = 0; i < PIECE_KINDS; i++) {
+            for (long pieces = pieceBoards[i]; pieces != 0; pieces &= pieces - 1) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                squares[square] = (byte) (i + 1);
+                zobristKey ^= Zobrist.piece(i, square);
+                midgameScore += PieceSquareTables.midgame(i, square);
+                endgameScore += PieceSquareTables.endgame(i, square);
+                phase += PieceSquareTables.phase(i);
             }
         }
+    }
+
+    public Collection<ChessPosition> getAllPiecesByColor(ChessGame.TeamColor color) {
+        Collection<ChessPosition> allPieces = new ArrayList<>(Long.bitCount(getColorBitboard(color)));
+        for (long pieces = getColorBitboard(color); pieces != 0; pieces &= pieces - 1) {
+            allPieces.add(positionOf(Long.numberOfTrailingZeros(pieces)));
+        }
         return allPieces;
     }
 
     public Collection<ChessMove> getAllMovesForTeam(ChessGame.TeamColor color) {
         Collection<ChessMove> result = new HashSet<>();
-        for (ChessPosition key : pieces.keySet()) {
-            ChessPiece value = pieces.get(key);
-            ChessGame.TeamColor pieceColor = value.getTeamColor();
-            if (pieceColor == color) {
-                result.addAll(value.pieceMoves(this, key));
-            }
+        for (long pieces = getColorBitboard(color); pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            result.addAll(getPiece(square).pieceMoves(this, positionOf(square)));
         }
         return result;
     }
@@ -94,20 +277,23 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) obj;
-        return that.toString().equals(this.toString());
+        //equal keys are checked against the pieces in case of a collision
+        return zobristKey == that.zobristKey && Arrays.equals(pieceBoards, that.pieceBoards);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(zobristKey);
     }
 
     @Override
     public String toString() {
-//        String result = "";
-        String boardString = "________\n________\n________\n________\n________\n________\n________\n________\n";
-        for (ChessPosition key : pieces.keySet()) {
-            ChessPiece value = pieces.get(key);
-            int row = key.getRow();
-            int col = key.getColumn();
-            boardString = boardString.substring(0, (row - 1) * 9 + col-1) + value.toString() + boardString.substring((row - 1) * 9 + col);
+        char[] boardString = "________\n________\n________\n________\n________\n________\n________\n________\n".toCharArray();
+        for (long pieces = occupied; pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            boardString[(square / 8) * 9 + square % 8] = getPiece(square).toString().charAt(0);
         }
-        return boardString;
+        return new String(boardString);
     }
 
     /**
@@ -115,42 +301,48 @@ public class ChessBoard {
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
-        pieces.clear();
-        positions.clear();
-        addPiece(new ChessPosition(1,1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(1,2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1,3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1,4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(1,5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(1,6), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1,7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1,8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-
-        addPiece(new ChessPosition(2,1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2,2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2,3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2,4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2,5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2,6), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2,7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2,8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-
-        addPiece(new ChessPosition(7,1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7,2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7,3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7,4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7,5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7,6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7,7), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7,8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-
-        addPiece(new ChessPosition(8,1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(8,2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8,3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8,4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(8,5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(8,6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8,7), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8,8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        Arrays.fill(pieceBoards, 0);
+        Arrays.fill(colorBoards, 0);
+        occupied = 0;
+        Arrays.fill(squares, (byte) 0);
+        zobristKey = 0;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        addPiece(ChessPosition.of(1,1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(1,2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1,3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1,4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(1,5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(1,6), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1,7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1,8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+
+        addPiece(ChessPosition.of(2,1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2,2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2,3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2,4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2,5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2,6), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2,7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2,8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+
+        addPiece(ChessPosition.of(7,1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7,2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7,3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7,4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7,5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7,6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7,7), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7,8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+
+        addPiece(ChessPosition.of(8,1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(8,2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8,3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8,4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(8,5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(8,6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8,7), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8,8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
     }
 }
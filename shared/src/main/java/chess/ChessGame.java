@@ -1,9 +1,20 @@
 package chess;
 
-import chess.rulebook.FIDERuleBook;
+import chess.rulebook.CastlingTable;
 import chess.rulebook.RuleBook;
+import chess.rulebook.Variant;
+import chess.rules.AttackTables;
+import chess.rules.MoveList;
+import chess.rules.PackedMove;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * For a class that can manage a chess game, making moves on a board
@@ -15,13 +26,37 @@ public class ChessGame {
     private TeamColor teamTurn;
     private ChessBoard board;
     private final RuleBook ruleBook;
-
+    //moves since the last capture or pawn move
+    private int halfmoveClock;
+    //not saved, it's rebuilt from the move history when a game is read
+    private final transient PositionHistory positionHistory = new PositionHistory();
+    private final transient Deque<MoveUndo> undoStack = new ArrayDeque<>();
+    //the last status worked out, and the position key and history length it was worked out for
+    private transient GameStatus status;
+    private transient long statusKey;
+    private transient int statusPly;
+    private transient volatile BoardSnapshot snapshot;
 
     public ChessGame() {
+        this(Variant.STANDARD);
+    }
+
+    /**
+     * Starts a game under the variant's rules, on its starting board
+     */
+    public ChessGame(Variant variant) {
+        this(variant.startingBoard(), variant);
+    }
+
+    private ChessGame(ChessBoard board, Variant variant) {
+        this(board, variant, variant.castlingTable(board));
+    }
+
+    ChessGame(ChessBoard board, Variant variant, CastlingTable castling) {
         this.teamTurn = TeamColor.WHITE;
-        this.board = new ChessBoard();
-        board.resetBoard();
-        this.ruleBook = new FIDERuleBook(board);
+        this.board = board;
+        this.ruleBook = variant.createRuleBook(board, castling);
+        recordStart();
     }
 
     /**
@@ -38,6 +73,8 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         teamTurn = team;
+        recordStart();
+        publishSnapshot();
     }
 
     /**
@@ -48,61 +85,76 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Whether the game can go on, and if not, why
+     */
+    public enum GameStatus {
+        ONGOING,
+        CHECKMATE,
+        STALEMATE,
+        DRAW_REPETITION,
+        DRAW_FIFTY_MOVES,
+        DRAW_INSUFFICIENT_MATERIAL,
+        //won under the variant's own rules, see getVariantWinner
+        VARIANT_WIN
+    }
+
     private TeamColor getOppositeColor(TeamColor color) {
         return color == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
     }
 
-    boolean isSpecialMove(ChessMove move, ChessPiece.PieceType pieceType) {
-        if (!(pieceType == ChessPiece.PieceType.KING || pieceType == ChessPiece.PieceType.PAWN)) {
-            return false;
+    /**
+     * @return the side the move castles to, or -1 if it isn't a castle
+     */
+    private int castlingSide(ChessMove move, ChessPiece movingPiece) {
+        if (movingPiece.getPieceType() != ChessPiece.PieceType.KING) {
+            return -1;
         }
-        int moveStartCol = move.getStartPosition().getColumn();
-        int moveEndCol = move.getEndPosition().getColumn();
-        if (pieceType == ChessPiece.PieceType.KING) {
-            return moveStartCol + 2 == moveEndCol || moveStartCol - 2 == moveEndCol;
-        } else {
-            //piece is a pawn;
-            return moveStartCol != moveEndCol && board.getPiece(move.getEndPosition()) == null;
+        TeamColor color = movingPiece.getTeamColor();
+        CastlingTable castling = ruleBook.getCastlingTable();
+        int side = castling.castlingSide(color, move.getStartPosition().getSquare(), move.getEndPosition().getSquare());
+        if (side == -1) {
+            return -1;
         }
+        //a Chess960 king stepping onto its rook's square only castles if its own rook is there
+        ChessPiece rook = board.getPiece(castling.rookFrom(color, side));
+        boolean ownRook = rook != null && rook.getTeamColor() == color && rook.getPieceType() == ChessPiece.PieceType.ROOK;
+        return ownRook ? side : -1;
     }
 
-    private void handleOtherPiece(ChessPiece movingPiece, ChessMove move) {
-        ChessPiece.PieceType pieceType = movingPiece.getPieceType();
-        TeamColor color = movingPiece.getTeamColor();
-        int moveStartRow = move.getStartPosition().getRow();
-        if (pieceType == ChessPiece.PieceType.KING) {
-            ChessPosition movingRookPos;
-            if (move.getEndPosition().getColumn() > move.getStartPosition().getColumn()) {
-                //kingSide Castle
-                movingRookPos = new ChessPosition(moveStartRow, 8);
-                ChessPiece movingRook = board.getPiece(movingRookPos);
-                board.addPiece(new ChessPosition(moveStartRow, 6), movingRook);
-            } else {
-                //QueenSide Castle
-                movingRookPos = new ChessPosition(moveStartRow, 1);
-                ChessPiece movingRook = board.getPiece(movingRookPos);
-                board.addPiece(new ChessPosition(moveStartRow, 4), movingRook);
-            }
-            board.removePiece(movingRookPos);
-        } else {
-            //piece == pawn
-            ChessPosition pawnPos = move.getEndPosition();
-            int pawnCol = pawnPos.getColumn();
-            int pawnRow = pawnPos.getRow();
-            if (color == TeamColor.WHITE) {
-                board.removePiece(new ChessPosition(pawnRow - 1, pawnCol));
-            } else {
-                board.removePiece(new ChessPosition(pawnRow + 1, pawnCol));
-            }
+    private boolean isEnPassant(ChessMove move, ChessPiece.PieceType pieceType) {
+        return pieceType == ChessPiece.PieceType.PAWN
+                && move.getStartPosition().getColumn() != move.getEndPosition().getColumn()
+                && board.getPiece(move.getEndPosition()) == null;
+    }
+
+    /**
+     * Moves the king and rook to their castled squares, or back again when undoing
+     */
+    private void castle(TeamColor color, int side, boolean undo) {
+        CastlingTable castling = ruleBook.getCastlingTable();
+        int kingFrom = castling.kingFrom(color);
+        int rookFrom = castling.rookFrom(color, side);
+        int kingTo = castling.kingTo(color, side);
+        int rookTo = castling.rookTo(color, side);
+        if (undo) {
+            kingTo = kingFrom;
+            rookTo = rookFrom;
+            kingFrom = castling.kingTo(color, side);
+            rookFrom = castling.rookTo(color, side);
         }
+        ChessPiece king = board.getPiece(kingFrom);
+        ChessPiece rook = board.getPiece(rookFrom);
+        //in Chess960 the king or rook can land where the other started, so clear both first
+        board.removePiece(ChessBoard.positionOf(kingFrom));
+        board.removePiece(ChessBoard.positionOf(rookFrom));
+        board.addPiece(ChessBoard.positionOf(kingTo), king);
+        board.addPiece(ChessBoard.positionOf(rookTo), rook);
     }
 
     private void setPieceMoved(ChessMove move, ChessPiece movingPiece) {
         ChessPiece.PieceType pieceType = movingPiece.getPieceType();
         TeamColor pieceColor = movingPiece.getTeamColor();
-        if (!(pieceType == ChessPiece.PieceType.KING || pieceType == ChessPiece.PieceType.ROOK)) {
-            return;
-        }
         if (pieceType == ChessPiece.PieceType.KING) {
             if (pieceColor == TeamColor.WHITE) {
                 ruleBook.setWhiteKingMoved(true);
@@ -110,33 +162,42 @@ public class ChessGame {
                 //Piece is black
                 ruleBook.setBlackKingMoved(true);
             }
-        } else {
-            //pieceType == ROOK
-            int moveStartCol = move.getStartPosition().getColumn();
-            int moveStartRow = move.getStartPosition().getRow();
-            if (pieceColor == TeamColor.WHITE) {
-                if (moveStartCol == 1 && moveStartRow == 1) {
-                    //A rook
-                    ruleBook.setWhiteARookMoved(true);
-                } else if (moveStartCol == 8 && moveStartRow == 1){
-                    //H rook
-                    ruleBook.setWhiteHRookMoved(true);
-                }
+        } else if (pieceType == ChessPiece.PieceType.ROOK) {
+            int side = ruleBook.getCastlingTable().rookSide(pieceColor, move.getStartPosition().getSquare());
+            setRookMoved(pieceColor, side);
+        }
+    }
+
+    /**
+     * A rook captured on its starting square can't castle any more, even if another rook moves there later
+     */
+    private void setCornerCaptured(ChessPosition end) {
+        CastlingTable castling = ruleBook.getCastlingTable();
+        for (TeamColor color : TeamColor.values()) {
+            setRookMoved(color, castling.rookSide(color, end.getSquare()));
+        }
+    }
+
+    private void setRookMoved(TeamColor color, int side) {
+        if (side == CastlingTable.QUEEN_SIDE) {
+            //A rook
+            if (color == TeamColor.WHITE) {
+                ruleBook.setWhiteARookMoved(true);
             } else {
-                //Piece is black
-                if (moveStartCol == 1 && moveStartRow == 8) {
-                    //A rook
-                    ruleBook.setBlackARookMoved(true);
-                } else if (moveStartCol == 8 && moveStartRow == 8) {
-                    //H rook
-                    ruleBook.setBlackHRookMoved(true);
-                }
+                ruleBook.setBlackARookMoved(true);
+            }
+        } else if (side == CastlingTable.KING_SIDE) {
+            //H rook
+            if (color == TeamColor.WHITE) {
+                ruleBook.setWhiteHRookMoved(true);
+            } else {
+                ruleBook.setBlackHRookMoved(true);
             }
         }
     }
 
     MadeMove.MovedPiece getMovedPieceType(boolean specialMove, ChessPiece movingPiece) {
-        if (specialMove) {
+        if (specialMove && movingPiece.getPieceType() == ChessPiece.PieceType.KING) {
             return MadeMove.MovedPiece.KINGSIDECASTLE;
         } else {
             switch (movingPiece.getPieceType()) {
@@ -171,7 +232,73 @@ public class ChessGame {
      * startPosition
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
-        return ruleBook.validMoves(startPosition);
+        ChessPiece piece = board.getPiece(startPosition);
+        if (piece == null) {
+            return null;
+        }
+        return movesFrom(packedLegalMoves(piece.getTeamColor()), startPosition.getSquare());
+    }
+
+    /**
+     * @return the moves in a packed legal move list that start from the square
+     */
+    static Collection<ChessMove> movesFrom(int[] packedMoves, int from) {
+        Collection<ChessMove> moves = new HashSet<>();
+        for (int move : packedMoves) {
+            if (PackedMove.from(move) == from) {
+                moves.add(PackedMove.toChessMove(move));
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Gets every legal move for the team from the {@link SharedMoveCache}, generating and
+     * storing them if no game has been in this position yet. This is the only move cache:
+     * moves, highlighting and the checkmate and stalemate tests all read the same list.
+     */
+    private int[] packedLegalMoves(TeamColor teamColor) {
+        long key = positionKey(teamColor);
+        SharedMoveCache cache = SharedMoveCache.shared();
+        int[] moves = cache.get(key, board.getOccupied());
+        if (moves == null) {
+            MoveList moveList = MoveList.acquire();
+            ruleBook.generateLegalMoves(teamColor, moveList);
+            moves = moveList.toArray();
+            moveList.release();
+            cache.put(key, board.getOccupied(), moves);
+        }
+        return moves;
+    }
+
+    /**
+     * Gets the legal moves of every piece on the team at once, for callers that want them all
+     * such as highlighting or picking a computer move. The position is analyzed once for all
+     * pieces, rather than once per {@link #validMoves(ChessPosition)} call.
+     *
+     * @return the moves of each piece that has any, keyed by its square in square order
+     */
+    public Map<ChessPosition, List<ChessMove>> legalMoves(TeamColor teamColor) {
+        Map<ChessPosition, List<ChessMove>> result = new LinkedHashMap<>();
+        List<ChessMove> squareMoves = null;
+        int lastFrom = -1;
+        //moves are generated piece by piece in square order, so each piece's moves are together
+        for (int move : packedLegalMoves(teamColor)) {
+            if (PackedMove.from(move) != lastFrom) {
+                lastFrom = PackedMove.from(move);
+                squareMoves = new ArrayList<>();
+                result.put(ChessBoard.positionOf(lastFrom), squareMoves);
+            }
+            squareMoves.add(PackedMove.toChessMove(move));
+        }
+        return result;
+    }
+
+    /**
+     * Adds every legal move for the team whose turn it is, as {@link chess.rules.PackedMove} ints
+     */
+    public void generateLegalMoves(MoveList moves) {
+        ruleBook.generateLegalMoves(teamTurn, moves);
     }
 
     /**
@@ -188,33 +315,118 @@ public class ChessGame {
             throw new InvalidMoveException();
         }
         Collection<ChessMove> pieceValidMoves = validMoves(move.getStartPosition());
-        if (pieceValidMoves.isEmpty()) {
+        if (!pieceValidMoves.contains(move)) {
             throw new InvalidMoveException();
         }
-        for (ChessMove validMove : pieceValidMoves) {
-            if (validMove.equals(move)) {
-                ChessPiece movingPiece = board.getPiece(move.getStartPosition());
-                TeamColor oppositeColor = getOppositeColor(movingPiece.getTeamColor());
-                boolean specialMove = isSpecialMove(move, movingPiece.getPieceType());
-                MadeMove.MovedPiece movedPieceType = getMovedPieceType(specialMove, movingPiece);
-
-                if (move.getPromotionPiece() == null) {
-                    board.addPiece(move.getEndPosition(), movingPiece);
-                } else {
-                    ChessPiece newPiece = new ChessPiece(movingPiece.getTeamColor(), move.getPromotionPiece());
-                    board.addPiece(move.getEndPosition(), newPiece);
-                }
-                board.removePiece(move.getStartPosition());
-                if (specialMove) {
-                    handleOtherPiece(movingPiece, move);
-                }
-                ruleBook.recordMove(movingPiece.getTeamColor(), move, movedPieceType, null);
-                setPieceMoved(move, movingPiece);
-                setTeamTurn(oppositeColor);
-                return;
+        //catches castling rights or the like changed straight on the rule book since set up
+        recordStart();
+        applyMove(move);
+        recordCheckpoint();
+        publishSnapshot();
+    }
+
+    /**
+     * Records the current position as where the {@link MoveHistory} starts, if no move has
+     * been made yet. It's called wherever the starting position is set up rather than from
+     * {@link #applyMove}, so a search never writes FEN or changes the history.
+     */
+    private void recordStart() {
+        MoveHistory moveHistory = ruleBook.getMoveHistory();
+        if (moveHistory.size() == 0) {
+            moveHistory.setStart(Fen.write(board, teamTurn, ruleBook.getCastlingRights(),
+                    ruleBook.getEnPassantSquare(), halfmoveClock));
+        }
+    }
+
+    /**
+     * Takes a {@link MoveHistory} checkpoint when the game reaches one. Only moves made for
+     * real take them, so searches that apply and take back moves don't pay for the FEN.
+     */
+    private void recordCheckpoint() {
+        MoveHistory moveHistory = ruleBook.getMoveHistory();
+        if (moveHistory.size() % MoveHistory.CHECKPOINT_INTERVAL == 0) {
+            moveHistory.setCheckpoint(moveHistory.size() / MoveHistory.CHECKPOINT_INTERVAL, Fen.write(this));
+        }
+    }
+
+    /**
+     * Makes a move without checking that it is legal, recording what it changed so
+     * {@link #unmakeMove()} can take it back. Meant for callers that already got the move
+     * from {@link #validMoves(ChessPosition)}, such as search and replay.
+     *
+     * @param move a legal move for the team whose turn it is
+     */
+    public void applyMove(ChessMove move) {
+        ChessPiece movingPiece = board.getPiece(move.getStartPosition());
+        TeamColor oppositeColor = getOppositeColor(movingPiece.getTeamColor());
+        int castlingSide = castlingSide(move, movingPiece);
+        boolean enPassant = isEnPassant(move, movingPiece.getPieceType());
+        boolean specialMove = castlingSide != -1 || enPassant;
+        MadeMove.MovedPiece movedPieceType = getMovedPieceType(castlingSide != -1, movingPiece);
+        ChessPosition capturedPosition = move.getEndPosition();
+        if (enPassant) {
+            capturedPosition = ChessPosition.of(move.getStartPosition().getRow(), move.getEndPosition().getColumn());
+        }
+        //a Chess960 castle is written as the king moving onto its own rook, which isn't a capture
+        ChessPiece capturedPiece = castlingSide == -1 ? board.getPiece(capturedPosition) : null;
+        undoStack.push(new MoveUndo(move, movingPiece, capturedPiece, capturedPosition,
+                specialMove, ruleBook.getMovedPieces(), ruleBook.getEnPassantSquare(), teamTurn, halfmoveClock));
+        positionHistory.push(getPositionKey());
+        if (capturedPiece != null || movingPiece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            halfmoveClock = 0;
+        } else {
+            halfmoveClock++;
+        }
+
+        if (castlingSide != -1) {
+            castle(movingPiece.getTeamColor(), castlingSide, false);
+        } else {
+            if (move.getPromotionPiece() == null) {
+                board.addPiece(move.getEndPosition(), movingPiece);
+            } else {
+                ChessPiece newPiece = new ChessPiece(movingPiece.getTeamColor(), move.getPromotionPiece());
+                board.addPiece(move.getEndPosition(), newPiece);
+            }
+            board.removePiece(move.getStartPosition());
+            if (enPassant) {
+                board.removePiece(capturedPosition);
             }
         }
-        throw new InvalidMoveException();
+        ruleBook.recordMove(movingPiece.getTeamColor(), move, movedPieceType, null);
+        setPieceMoved(move, movingPiece);
+        setCornerCaptured(move.getEndPosition());
+        teamTurn = oppositeColor;
+    }
+
+    /**
+     * Takes back the last move made with {@link #makeMove(ChessMove)} or {@link #applyMove(ChessMove)}
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void unmakeMove() {
+        MoveUndo undo = undoStack.poll();
+        if (undo == null) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        ChessMove move = undo.move();
+        //variant rule books look at the board as the move left it, so this goes first
+        ruleBook.removeLastMove();
+        if (undo.specialMove() && undo.movedPiece().getPieceType() == ChessPiece.PieceType.KING) {
+            TeamColor color = undo.movedPiece().getTeamColor();
+            castle(color, ruleBook.getCastlingTable().castlingSide(color, move.getStartPosition().getSquare(),
+                    move.getEndPosition().getSquare()), true);
+        } else {
+            board.removePiece(move.getEndPosition());
+            board.addPiece(move.getStartPosition(), undo.movedPiece());
+            if (undo.capturedPiece() != null) {
+                board.addPiece(undo.capturedPosition(), undo.capturedPiece());
+            }
+        }
+        ruleBook.setMovedPieces(undo.movedPieces());
+        ruleBook.setEnPassantSquare(undo.enPassantSquare());
+        teamTurn = undo.teamTurn();
+        halfmoveClock = undo.halfmoveClock();
+        positionHistory.pop();
     }
 
     /**
@@ -234,7 +446,7 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        return ruleBook.isInCheckmate(teamColor);
+        return isInCheck(teamColor) && packedLegalMoves(teamColor).length == 0;
     }
 
     /**
@@ -245,12 +457,116 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        return ruleBook.isInStalemate(teamColor);
+        return !isInCheck(teamColor) && packedLegalMoves(teamColor).length == 0;
+    }
+
+    /**
+     * Gets a Zobrist key for the whole position: the pieces, whose turn it is, the castling
+     * rights, the variant and, when a capture is actually possible, the en passant file. Two positions
+     * with the same key are the same position for repetition purposes.
+     *
+     * @return the 64 bit position key
+     */
+    public long getPositionKey() {
+        return positionKey(teamTurn);
+    }
+
+    /**
+     * @return the position key as if it were toMove's turn
+     */
+    private long positionKey(TeamColor toMove) {
+        long key = board.getZobristKey() ^ ruleBook.getVariantKey() ^ Zobrist.castling(ruleBook.getCastlingRights());
+        if (toMove == TeamColor.BLACK) {
+            key ^= Zobrist.blackToMove();
+        }
+        int enPassantSquare = ruleBook.getEnPassantSquare();
+        if (enPassantSquare != -1 && (AttackTables.pawnAttacks(getOppositeColor(toMove), enPassantSquare)
+                & board.getPieceBitboard(toMove, ChessPiece.PieceType.PAWN)) != 0) {
+            key ^= Zobrist.enPassant(enPassantSquare);
+        }
+        return key;
+    }
+
+    /**
+     * Gets the status of the current position. It's only worked out once per position, so
+     * asking again before the next move costs a position key lookup.
+     *
+     * @return whether either team is checkmated or stalemated
+     */
+    public GameStatus getGameStatus() {
+        long key = getPositionKey();
+        if (status == null || statusKey != key || statusPly != positionHistory.size()) {
+            status = ruleBook.getVariantWinner() != null ? GameStatus.VARIANT_WIN : computeStatus(teamTurn);
+            if (status == GameStatus.ONGOING) {
+                status = computeStatus(getOppositeColor(teamTurn));
+            }
+            if (status == GameStatus.ONGOING) {
+                status = computeDrawStatus(key);
+            }
+            statusKey = key;
+            statusPly = positionHistory.size();
+        }
+        return status;
+    }
+
+    private GameStatus computeDrawStatus(long key) {
+        if (positionHistory.count(key, halfmoveClock) + 1 >= 3) {
+            return GameStatus.DRAW_REPETITION;
+        }
+        if (halfmoveClock >= 100) {
+            return GameStatus.DRAW_FIFTY_MOVES;
+        }
+        if (ruleBook.isInsufficientMaterial()) {
+            return GameStatus.DRAW_INSUFFICIENT_MATERIAL;
+        }
+        return GameStatus.ONGOING;
+    }
+
+    /**
+     * @return the team that won under the variant's own rules, such as reaching the center
+     * in King of the Hill, or null if neither has
+     */
+    public TeamColor getVariantWinner() {
+        return ruleBook.getVariantWinner();
+    }
+
+    public Variant getVariant() {
+        return ruleBook.getVariant();
+    }
+
+    /**
+     * @return how many moves have been made since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+        //the clock decides the fifty-move draw but isn't part of the status key
+        status = null;
+        recordStart();
+    }
+
+    /**
+     * @return how many times the current position has come up, counting this time
+     */
+    public int getRepetitionCount() {
+        return positionHistory.count(getPositionKey(), halfmoveClock) + 1;
+    }
+
+    private GameStatus computeStatus(TeamColor teamColor) {
+        if (isInCheckmate(teamColor)) {
+            return GameStatus.CHECKMATE;
+        }
+        if (isInStalemate(teamColor)) {
+            return GameStatus.STALEMATE;
+        }
+        return GameStatus.ONGOING;
     }
 
     public boolean isGameOver() {
-        return isInCheckmate(TeamColor.WHITE) || isInCheckmate(TeamColor.BLACK)
-                || isInStalemate(TeamColor.WHITE) || isInStalemate(TeamColor.BLACK);
+        return getGameStatus() != GameStatus.ONGOING;
     }
 
     /**
@@ -259,9 +575,140 @@ public class ChessGame {
      * @param board the new board to use
      */
     public void setBoard(ChessBoard board) {
+        loadPosition(board, teamTurn);
+        recordStart();
+        publishSnapshot();
+    }
+
+    /**
+     * Sets up a position like {@link #setBoard} and {@link #setTeamTurn} without publishing a
+     * snapshot or recording the start of the move history, for loaders that set up more state
+     * afterward and then call {@link #finishLoading}. The next snapshot is taken when one
+     * is asked for.
+     */
+    void loadPosition(ChessBoard board, TeamColor teamTurn) {
         this.board = board;
+        this.teamTurn = teamTurn;
         ruleBook.setBoard(board);
         ruleBook.resetMovedPieces();
+        ruleBook.setEnPassantSquare(-1);
+        ruleBook.resetVariantState();
+        undoStack.clear();
+        ruleBook.getMoveHistory().clear();
+        positionHistory.clear();
+        halfmoveClock = 0;
+        snapshot = null;
+    }
+
+    /**
+     * Ends a {@link #loadPosition}, recording the loaded position as where the game starts
+     */
+    void finishLoading(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+        recordStart();
+    }
+
+    /**
+     * Gets the last published snapshot of the position. It's safe to read from any thread,
+     * and never shows a move half made.
+     * <p>
+     * Snapshots are published by {@link #makeMove}, {@link #setBoard} and
+     * {@link #setTeamTurn}. {@link #applyMove} and {@link #unmakeMove} don't publish so
+     * searches don't pay for it, and neither do changes made straight to the board; call
+     * {@link #publishSnapshot()} after those. A game that's just been created or loaded from
+     * FEN takes its first snapshot when it's first asked for, so games set up for a search or
+     * a replay never take one.
+     */
+    public BoardSnapshot getSnapshot() {
+        BoardSnapshot current = snapshot;
+        if (current == null) {
+            publishSnapshot();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    public void publishSnapshot() {
+        snapshot = new BoardSnapshot(this, ruleBook.getMoveHistory().size());
+    }
+
+    /**
+     * Rebuilds the position as it was after the given number of moves, replaying from the
+     * nearest {@link MoveHistory} checkpoint. The returned game has the board, turn, castling
+     * and en passant state of that point, with its own history starting there. This game
+     * isn't changed, so any number of threads can call it while no move is being made.
+     *
+     * @param ply how many moves into the game, from 0 up to the number of moves made
+     * @return a new game in that position
+     */
+    public ChessGame positionAt(int ply) {
+        MoveHistory moveHistory = ruleBook.getMoveHistory();
+        if (ply < 0 || ply > moveHistory.size()) {
+            throw new IndexOutOfBoundsException("No ply " + ply + " in a game of " + moveHistory.size());
+        }
+        if (moveHistory.size() == 0) {
+            return Fen.load(Fen.write(this), withSameRules());
+        }
+        int checkpoint = ply / MoveHistory.CHECKPOINT_INTERVAL;
+        while (moveHistory.getCheckpoint(checkpoint) == null) {
+            checkpoint--;
+        }
+        ChessGame game = Fen.load(moveHistory.getCheckpoint(checkpoint), withSameRules());
+        for (int i = checkpoint * MoveHistory.CHECKPOINT_INTERVAL; i < ply; i++) {
+            game.applyMove(PackedMove.toChessMove(moveHistory.getPackedMove(i)));
+        }
+        return game;
+    }
+
+    /**
+     * Replays every move onto a new game, so the copy has the same history for repetitions
+     * and variant rules as well as the same position, and can be changed independently
+     *
+     * @return a new game in this game's position
+     */
+    public ChessGame copy() {
+        MoveHistory moveHistory = ruleBook.getMoveHistory();
+        ChessGame game = positionAt(0);
+        for (int i = 0; i < moveHistory.size(); i++) {
+            game.applyMove(PackedMove.toChessMove(moveHistory.getPackedMove(i)));
+        }
+        return game;
+    }
+
+    /**
+     * @return a new game, not yet set up, under the same variant and castling squares as this one
+     */
+    private ChessGame withSameRules() {
+        return new ChessGame(new ChessBoard(), ruleBook.getVariant(), ruleBook.getCastlingTable());
+    }
+
+    /**
+     * Points the rule book back at this game's board once the game has been read from JSON,
+     * keeping the castling, en passant and draw state that {@link #setBoard} would reset, and
+     * replays the saved moves to get back the positions repetitions are counted against and
+     * the checkpoints, neither of which are saved
+     */
+    public void relinkRuleBook() {
+        ruleBook.setBoard(board);
+        positionHistory.clear();
+        MoveHistory moveHistory = ruleBook.getMoveHistory();
+        //games without moves are saved without their start
+        recordStart();
+        if (moveHistory.size() > 0) {
+            ChessGame replay = positionAt(0);
+            for (int i = 0; i < moveHistory.size(); i++) {
+                positionHistory.push(replay.getPositionKey());
+                replay.applyMove(PackedMove.toChessMove(moveHistory.getPackedMove(i)));
+                if ((i + 1) % MoveHistory.CHECKPOINT_INTERVAL == 0) {
+                    moveHistory.setCheckpoint((i + 1) / MoveHistory.CHECKPOINT_INTERVAL, Fen.write(replay));
+                }
+            }
+        }
+        publishSnapshot();
+    }
+
+    RuleBook getRuleBook() {
+        return ruleBook;
     }
 
     /**
@@ -10,6 +10,14 @@ import java.util.regex.Pattern;
  * signature of the existing methods.
  */
 public class ChessPosition {
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+        }
+    }
+
     private final int row, col;
 
     public ChessPosition(int row, int col) {
@@ -17,6 +25,24 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Gets the shared instance for a square, so hot paths don't allocate positions.
+     * Positions off the board still get a new instance.
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return new ChessPosition(row, col);
+        }
+        return SQUARES[(row - 1) * 8 + (col - 1)];
+    }
+
+    /**
+     * @param square 0..63 index, see {@link #getSquare()}
+     */
+    public static ChessPosition fromSquare(int square) {
+        return SQUARES[square];
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -48,7 +74,7 @@ public class ChessPosition {
             String[] parts = positionString.split(", ");
             int row = Integer.parseInt(parts[0].split("-")[1]); // Get the second part after "row-"
             int col = Integer.parseInt(parts[1].split("-")[1]); // Get the second part after "col-"
-            return new ChessPosition(row, col);
+            return ChessPosition.of(row, col);
         } catch(Error e) {
             throw new IllegalArgumentException("Invalid format: " + positionString);
         }
@@ -69,4 +95,11 @@ public class ChessPosition {
     public int getColumn() {
         return col;
     }
+
+    /**
+     * @return this square as an index from 0 (row 1, col 1) to 63 (row 8, col 8)
+     */
+    public int getSquare() {
+        return (row - 1) * 8 + (col - 1);
+    }
 }
@@ -0,0 +1,112 @@
+package chess;
+
+import chess.rulebook.RuleBook;
+
+/**
+ * Reads positions written in Forsyth-Edwards Notation, for example the starting position
+ * {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1}.
+ * The move number field is accepted but not used.
+ */
+public class Fen {
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Fen() {
+    }
+
+    public static ChessGame load(String fen) {
+        return load(fen, new ChessGame());
+    }
+
+    /**
+     * Sets game up in the position, keeping its variant. Castling letters mean the king side
+     * and queen side rooks, wherever the variant starts them.
+     */
+    static ChessGame load(String fen, ChessGame game) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        //set up quietly, so the game's first snapshot shows the whole position rather than each step
+        game.loadPosition(loadBoard(fields[0]), fields[1].equals("b") ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        String castling = fields.length > 2 ? fields[2] : "-";
+        RuleBook ruleBook = game.getRuleBook();
+        ruleBook.setWhiteHRookMoved(castling.indexOf('K') == -1);
+        ruleBook.setWhiteARookMoved(castling.indexOf('Q') == -1);
+        ruleBook.setBlackHRookMoved(castling.indexOf('k') == -1);
+        ruleBook.setBlackARookMoved(castling.indexOf('q') == -1);
+        if (fields.length > 3 && !fields[3].equals("-")) {
+            int col = fields[3].charAt(0) - 'a' + 1;
+            int row = fields[3].charAt(1) - '0';
+            ruleBook.setEnPassantSquare(ChessBoard.squareIndex(row, col));
+        }
+        game.finishLoading(fields.length > 4 ? Integer.parseInt(fields[4]) : 0);
+        return game;
+    }
+
+    /**
+     * Writes the game's position as FEN. The move number is always written as 1.
+     */
+    public static String write(ChessGame game) {
+        return write(game.getBoard(), game.getTeamTurn(), game.getRuleBook().getCastlingRights(),
+                game.getRuleBook().getEnPassantSquare(), game.getHalfmoveClock());
+    }
+
+    static String write(ChessBoard board, ChessGame.TeamColor teamTurn, int rights, int enPassantSquare, int halfmoveClock) {
+        StringBuilder fen = new StringBuilder(90);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(ChessPosition.of(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(piece);
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+        fen.append(teamTurn == ChessGame.TeamColor.WHITE ? " w " : " b ");
+        if (rights == 0) {
+            fen.append('-');
+        }
+        for (int right = 0; right < 4; right++) {
+            if ((rights & 1 << right) != 0) {
+                fen.append("KQkq".charAt(right));
+            }
+        }
+        if (enPassantSquare == -1) {
+            fen.append(" -");
+        } else {
+            fen.append(' ').append((char) ('a' + enPassantSquare % 8)).append(enPassantSquare / 8 + 1);
+        }
+        fen.append(' ').append(halfmoveClock).append(" 1");
+        return fen.toString();
+    }
+
+    public static ChessBoard loadBoard(String placement) {
+        ChessBoard board = new ChessBoard();
+        int row = 8;
+        int col = 1;
+        for (char c : placement.toCharArray()) {
+            if (c == '/') {
+                row--;
+                col = 1;
+            } else if (Character.isDigit(c)) {
+                col += c - '0';
+            } else {
+                board.addPiece(ChessPosition.of(row, col), ChessPiece.fromString(String.valueOf(c)));
+                col++;
+            }
+        }
+        return board;
+    }
+}
@@ -1,24 +1,200 @@
 package chess;
 
+import chess.rules.PackedMove;
+import com.google.gson.*;
+import com.google.gson.annotations.JsonAdapter;
+
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 
+/**
+ * Every move made in a game, packed into a short per move plus a byte saying who moved
+ * what, so a long game costs a few bytes per ply instead of a tree of objects.
+ * <p>
+ * The position before the first move is kept as FEN. Positions partway through are rebuilt
+ * by replaying from the nearest checkpoint, a FEN taken every {@value #CHECKPOINT_INTERVAL}
+ * plies as {@link ChessGame#makeMove} reaches them, see {@link ChessGame#positionAt(int)}.
+ * Checkpoints aren't saved; a game read back takes them again as it replays its moves.
+ * Saved games store the moves as base64 rather than a JSON array.
+ */
+@JsonAdapter(MoveHistory.Serializer.class)
 public class MoveHistory {
-    private final List<MadeMove> moves = new ArrayList<>();
-    //Need piece and move, also castling. perhaps track check/captures as well
+    public static final int CHECKPOINT_INTERVAL = 32;
+    private static final MadeMove.MovedPiece[] PIECES = MadeMove.MovedPiece.values();
+    private static final MadeMove.MoveType[] TYPES = MadeMove.MoveType.values();
+
+    //bits 0-5 from, 6-11 to, 12-15 promotion flag, see PackedMove
+    private short[] moves = new short[64];
+    //bit 0 set when black moved, bits 1-4 the MovedPiece, bits 5-6 the MoveType + 1 or 0 for none
+    private byte[] details = new byte[64];
+    private int size;
+    private String start;
+    //checkpoints.get(k) is the position at ply k * CHECKPOINT_INTERVAL, or null if not taken yet
+    private final transient List<String> checkpoints = new ArrayList<>();
 
     public void recordMove(ChessGame.TeamColor color, ChessMove move, MadeMove.MovedPiece piece, MadeMove.MoveType type) {
-        moves.add(new MadeMove(color, piece, move, type));
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+            details = Arrays.copyOf(details, size * 2);
+        }
+        int flag = move.getPromotionPiece() == null ? PackedMove.NORMAL : PackedMove.promotionFlag(move.getPromotionPiece());
+        moves[size] = (short) PackedMove.encode(ChessBoard.squareIndex(move.getStartPosition()),
+                ChessBoard.squareIndex(move.getEndPosition()), flag);
+        int detail = color == ChessGame.TeamColor.BLACK ? 1 : 0;
+        detail |= piece.ordinal() << 1;
+        detail |= (type == null ? 0 : type.ordinal() + 1) << 5;
+        details[size] = (byte) detail;
+        size++;
     }
 
     public MadeMove getMove(int index) {
-        return moves.get(index);
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("No move " + index + " in a history of " + size);
+        }
+        int detail = details[index];
+        ChessGame.TeamColor color = (detail & 1) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        int type = (detail >>> 5) & 3;
+        return new MadeMove(color, PIECES[(detail >>> 1) & 15], PackedMove.toChessMove(getPackedMove(index)),
+                type == 0 ? null : TYPES[type - 1]);
+    }
+
+    /**
+     * @return the move as a {@link PackedMove} int, with only promotion flags set
+     */
+    public int getPackedMove(int index) {
+        return moves[index] & 0xFFFF;
+    }
+
+    public void removeLastMove() {
+        if (size > 0) {
+            size--;
+            //a checkpoint past the end would describe a position that was taken back
+            int lastValid = size / CHECKPOINT_INTERVAL;
+            while (checkpoints.size() > lastValid + 1) {
+                checkpoints.removeLast();
+            }
+        }
     }
 
     public MadeMove getLastMove() {
-        if (!moves.isEmpty()) {
-            return moves.getLast();
+        if (size > 0) {
+            return getMove(size - 1);
         }
         return null;
     }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+        start = null;
+        checkpoints.clear();
+    }
+
+    /**
+     * @return the position before the first move as FEN, recorded by {@link ChessGame} when
+     * the game is set up, or null if it hasn't been
+     */
+    public String getStart() {
+        return start;
+    }
+
+    public void setStart(String fen) {
+        start = fen;
+        checkpoints.clear();
+    }
+
+    /**
+     * @return the position at ply k * {@link #CHECKPOINT_INTERVAL} as FEN, or null if it hasn't been taken
+     */
+    String getCheckpoint(int k) {
+        if (k == 0) {
+            return start;
+        }
+        return k < checkpoints.size() ? checkpoints.get(k) : null;
+    }
+
+    void setCheckpoint(int k, String fen) {
+        while (checkpoints.size() <= k) {
+            checkpoints.add(null);
+        }
+        checkpoints.set(k, fen);
+    }
+
+    static class Serializer implements JsonSerializer<MoveHistory>, JsonDeserializer<MoveHistory> {
+        @Override
+        public JsonElement serialize(MoveHistory history, Type typeOfSrc, JsonSerializationContext context) {
+            ByteBuffer packed = ByteBuffer.allocate(history.size * 2);
+            for (int i = 0; i < history.size; i++) {
+                packed.putShort(history.moves[i]);
+            }
+            Base64.Encoder encoder = Base64.getEncoder();
+            JsonObject json = new JsonObject();
+            //a game with no moves records its start again when it's read
+            if (history.start != null && history.size > 0) {
+                json.addProperty("start", history.start);
+            }
+            json.addProperty("moves", encoder.encodeToString(packed.array()));
+            json.addProperty("details", encoder.encodeToString(Arrays.copyOf(history.details, history.size)));
+            return json;
+        }
+
+        @Override
+        public MoveHistory deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+            MoveHistory history = new MoveHistory();
+            JsonObject object = json.getAsJsonObject();
+            if (!object.has("moves")) {
+                return history;
+            }
+            if (object.get("moves").isJsonArray()) {
+                readMadeMoves(history, object.getAsJsonArray("moves"), context);
+                return history;
+            }
+            Base64.Decoder decoder = Base64.getDecoder();
+            ByteBuffer packed = ByteBuffer.wrap(decoder.decode(object.get("moves").getAsString()));
+            byte[] details = decoder.decode(object.get("details").getAsString());
+            int size = details.length;
+            history.moves = new short[Math.max(size, 64)];
+            for (int i = 0; i < size; i++) {
+                history.moves[i] = packed.getShort();
+            }
+            history.details = Arrays.copyOf(details, Math.max(size, 64));
+            history.size = size;
+            if (object.has("start")) {
+                history.start = object.get("start").getAsString();
+            }
+            return history;
+        }
+
+        /**
+         * Games saved before the history was packed have a list of {@link MadeMove} objects.
+         * Only standard games existed then, so their moves start from the usual position.
+         */
+        private static void readMadeMoves(MoveHistory history, JsonArray moves, JsonDeserializationContext context) {
+            for (JsonElement element : moves) {
+                try {
+                    JsonObject made = element.getAsJsonObject();
+                    ChessMove move = context.deserialize(made.get("move"), ChessMove.class);
+                    if (move == null || move.getStartPosition() == null || move.getEndPosition() == null) {
+                        throw new JsonParseException("Move " + history.size + " has no squares: " + element);
+                    }
+                    JsonElement type = made.get("type");
+                    history.recordMove(ChessGame.TeamColor.valueOf(made.get("color").getAsString()), move,
+                            MadeMove.MovedPiece.valueOf(made.get("piece").getAsString()),
+                            type == null || type.isJsonNull() ? null : MadeMove.MoveType.valueOf(type.getAsString()));
+                } catch (IllegalArgumentException | IllegalStateException | NullPointerException | IndexOutOfBoundsException e) {
+                    throw new JsonParseException("Can't read move " + history.size + ": " + element, e);
+                }
+            }
+            if (history.size > 0) {
+                history.start = Fen.START_POSITION;
+            }
+        }
+    }
 }
@@ -0,0 +1,15 @@
+package chess;
+
+/**
+ * Everything needed to take back a move made through {@link ChessGame#applyMove(ChessMove)}
+ *
+ * @param capturedPosition where the captured piece stood, which differs from the move's
+ *                         end position for en passant
+ * @param movedPieces      the rule book's king/rook moved flags before the move
+ * @param enPassantSquare  the rule book's en passant square before the move
+ * @param halfmoveClock    the game's halfmove clock before the move
+ */
+record MoveUndo(ChessMove move, ChessPiece movedPiece, ChessPiece capturedPiece, ChessPosition capturedPosition,
+                boolean specialMove, int movedPieces, int enPassantSquare, ChessGame.TeamColor teamTurn,
+                int halfmoveClock) {
+}
@@ -0,0 +1,108 @@
+package chess;
+
+import chess.rules.MoveList;
+import chess.rules.PackedMove;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth ("perft"). The counts for
+ * well known positions are published, which makes this the correctness check for move
+ * generation, and timing it gives a nodes per second figure for the generator.
+ * <p>
+ * Run {@code main} to print counts and throughput for the standard positions, optionally
+ * passing how many plies deeper than the test depth to search.
+ */
+public class Perft {
+    /**
+     * A position with its known node counts, where counts[0] is depth 1
+     *
+     * @param testDepth how deep the unit tests go, kept low enough to run quickly
+     */
+    public record Position(String name, String fen, int testDepth, long... counts) {
+    }
+
+    public static final List<Position> POSITIONS = List.of(
+            new Position("start position", Fen.START_POSITION, 4,
+                    20, 400, 8902, 197281, 4865609),
+            new Position("kiwipete, castling and en passant", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 3,
+                    48, 2039, 97862, 4085603),
+            new Position("en passant and rank pins", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 4,
+                    14, 191, 2812, 43238, 674624),
+            new Position("promotions and castling rights", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 3,
+                    6, 264, 9467, 422333),
+            new Position("promotion by capture", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 3,
+                    44, 1486, 62379, 2103487),
+            new Position("quiet middlegame", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 3,
+                    46, 2079, 89890, 3894594)
+    );
+
+    private Perft() {
+    }
+
+    public static long perft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = MoveList.acquire();
+        game.generateLegalMoves(moves);
+        long nodes = 0;
+        if (depth == 1) {
+            nodes = moves.size();
+        } else {
+            for (int i = 0; i < moves.size(); i++) {
+                game.applyMove(PackedMove.toChessMove(moves.get(i)));
+                nodes += perft(game, depth - 1);
+                game.unmakeMove();
+            }
+        }
+        moves.release();
+        return nodes;
+    }
+
+    /**
+     * @return the perft count below each root move, keyed by the move in coordinate notation (e2e4)
+     */
+    public static Map<String, Long> divide(ChessGame game, int depth) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        MoveList moves = MoveList.acquire();
+        game.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            game.applyMove(PackedMove.toChessMove(move));
+            result.put(moveName(move), perft(game, depth - 1));
+            game.unmakeMove();
+        }
+        moves.release();
+        return result;
+    }
+
+    private static String moveName(int move) {
+        String name = squareName(PackedMove.from(move)) + squareName(PackedMove.to(move));
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        if (promotion != null) {
+            name += new ChessPiece(ChessGame.TeamColor.BLACK, promotion).toString();
+        }
+        return name;
+    }
+
+    private static String squareName(int square) {
+        return "" + (char) ('a' + square % 8) + (square / 8 + 1);
+    }
+
+    public static void main(String[] args) {
+        int extraDepth = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        for (Position position : POSITIONS) {
+            int depth = Math.min(position.testDepth() + extraDepth, position.counts().length);
+            ChessGame game = Fen.load(position.fen());
+            long start = System.nanoTime();
+            long nodes = perft(game, depth);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            String status = nodes == position.counts()[depth - 1] ? "ok" : "MISMATCH, expected " + position.counts()[depth - 1];
+            System.out.printf("%-36s depth %d: %,12d nodes %8.2fs %,12.0f nodes/s  %s%n",
+                    position.name(), depth, nodes, seconds, nodes / seconds, status);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * The position key of every position a game has been in before the current one, in a
+ * plain long array so making and taking back moves in a search doesn't box anything.
+ * <p>
+ * A position can only come up again after moves that can be undone on the board, so
+ * checking for repetition only looks back as far as the last capture or pawn move, at most
+ * a hundred keys under the fifty-move rule.
+ * <p>
+ * The keys aren't saved with the game, since they'd cost more than the moves themselves;
+ * {@link ChessGame} rebuilds them from its {@link MoveHistory} when it's read back.
+ */
+class PositionHistory {
+    private long[] keys = new long[64];
+    private int size;
+
+    void push(long key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        keys[size++] = key;
+    }
+
+    void pop() {
+        if (size > 0) {
+            size--;
+        }
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param halfmoveClock moves since the last capture or pawn move, which no earlier
+     *                      position can repeat across
+     * @return how many times the game was in the position before now
+     */
+    int count(long key, int halfmoveClock) {
+        int count = 0;
+        for (int i = size - 1, oldest = Math.max(0, size - halfmoveClock); i >= oldest; i--) {
+            if (keys[i] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
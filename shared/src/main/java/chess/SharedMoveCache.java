@@ -0,0 +1,136 @@
+package chess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Legal move lists shared by every game in the process, keyed by position key (see
+ * {@link ChessGame#getPositionKey()}). Games on a server mostly pass through the same
+ * openings, so one game's work saves the next one from generating the same moves.
+ * <p>
+ * The cache is a bounded LRU split into segments by key, so threads working on different
+ * positions rarely wait on the same lock. Each entry also remembers the occupancy bitboard
+ * as a cheap check against key collisions. The size defaults to 65536 positions and can be
+ * set with the {@code chess.moveCacheSize} system property.
+ */
+public class SharedMoveCache {
+    private static final int SEGMENTS = 16;
+    private static final SharedMoveCache SHARED = new SharedMoveCache(Integer.getInteger("chess.moveCacheSize", 1 << 16));
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final int capacity;
+
+    public SharedMoveCache(int capacity) {
+        int segmentCapacity = Math.max(1, capacity / SEGMENTS);
+        this.capacity = segmentCapacity * SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    public static SharedMoveCache shared() {
+        return SHARED;
+    }
+
+    private Segment segmentFor(long key) {
+        return segments[(int) (key >>> 60) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * @return the packed legal moves stored for the position, or null if there aren't any
+     */
+    public int[] get(long key, long occupied) {
+        Segment segment = segmentFor(key);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+        }
+        if (entry == null || entry.occupied() != occupied) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.moves();
+    }
+
+    /**
+     * @param moves the packed legal moves, which must not be changed afterward
+     */
+    public void put(long key, long occupied, int[] moves) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, new Entry(occupied, moves));
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @param size     positions stored right now
+     * @param capacity the most positions the cache keeps
+     * @param hits     lookups that found the position's moves
+     * @param misses   lookups that had to generate them
+     * @param hitRate  hits as a fraction of all lookups, or 0 before the first
+     */
+    public record Metrics(int size, int capacity, long hits, long misses, double hitRate) {
+    }
+
+    public Metrics getMetrics() {
+        long hitCount = getHits();
+        long missCount = getMisses();
+        long lookups = hitCount + missCount;
+        return new Metrics(size(), capacity, hitCount, missCount, lookups == 0 ? 0 : (double) hitCount / lookups);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SharedMoveCache{size=%d, hits=%d, misses=%d}", size(), getHits(), getMisses());
+    }
+
+    private record Entry(long occupied, int[] moves) {
+    }
+
+    private static class Segment extends LinkedHashMap<Long, Entry> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > capacity;
+        }
+    }
+}
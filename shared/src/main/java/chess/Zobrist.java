@@ -0,0 +1,62 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the keys of everything
+ * in it, so moving a piece only takes a couple of XORs to update.
+ * <p>
+ * The keys come from a fixed seed so a position hashes the same way on every run. Keys
+ * are never saved, boards work theirs out again when read, but a fixed seed keeps table
+ * collisions, and with them engine searches and the tests that check them, reproducible.
+ */
+class Zobrist {
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C4E55L);
+        for (long[] squares : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        //each right gets its own key, the table is every combination of them
+        long[] rightKeys = {random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong()};
+        for (int rights = 0; rights < CASTLING.length; rights++) {
+            for (int right = 0; right < rightKeys.length; right++) {
+                if ((rights & 1 << right) != 0) {
+                    CASTLING[rights] ^= rightKeys[right];
+                }
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILE[file] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    static long piece(int pieceIndex, int square) {
+        return PIECE_SQUARE[pieceIndex][square];
+    }
+
+    /**
+     * @param rights castling rights as returned by {@link chess.rulebook.RuleBook#getCastlingRights()}
+     */
+    static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    static long enPassant(int square) {
+        return EN_PASSANT_FILE[square % 8];
+    }
+
+    static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+}
@@ -0,0 +1,152 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Picks moves with an iterative deepening alpha-beta search: depth 1, then 2 and so on
+ * until the limit, each iteration starting from the previous one's best line through the
+ * shared transposition table. Stopping early, by the time limit or {@link #stop()}, returns
+ * the last iteration that finished.
+ * <p>
+ * With more than one thread the search is Lazy SMP: helper threads search the same position
+ * on copies of the game, with nothing in common but the transposition table. What they
+ * store there lets the main thread skip or reorder work, and every other helper searches one
+ * ply deeper so they don't all reach the same positions at the same time. Only the main
+ * thread's iterations are reported.
+ * <p>
+ * An engine keeps its transposition table between searches, so consecutive moves of one
+ * game reuse earlier work. It searches one game at a time.
+ */
+public class Engine {
+    public static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    private final TranspositionTable table;
+    private final int threads;
+    private volatile Search current;
+
+    public Engine() {
+        this(DEFAULT_TABLE_MEGABYTES);
+    }
+
+    public Engine(int tableMegabytes) {
+        this(tableMegabytes, 1);
+    }
+
+    /**
+     * @param tableMegabytes the transposition table's size, rounded down to a power of two entries
+     * @param threads        how many threads each search uses, counting the caller's
+     */
+    public Engine(int tableMegabytes, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("An engine needs at least 1 thread, not " + threads);
+        }
+        this.table = new TranspositionTable(tableMegabytes);
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        return search(game, limits, result -> { });
+    }
+
+    /**
+     * Searches the game's position for the side to move, on the calling thread plus any
+     * helpers. The game is changed during the search and put back afterward, so don't use it
+     * from another thread meanwhile; pass a copy such as {@link ChessGame#copy()} if it's shared.
+     *
+     * @param onIteration called with the result of each finished iteration, on the searching thread
+     * @return the result of the deepest finished iteration, with the nodes and time of the
+     * whole search, or null if {@link #stop()} came before the first iteration finished
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits, Consumer<SearchResult> onIteration) {
+        long start = System.nanoTime();
+        long deadline = limits.timeMillis() == 0 ? 0 : start + limits.timeMillis() * 1_000_000;
+        Search search = new Search(game, table);
+        current = search;
+        List<Search> helpers = new ArrayList<>(threads - 1);
+        List<Thread> helperThreads = new ArrayList<>(threads - 1);
+        for (int id = 1; id < threads; id++) {
+            Search helper = new Search(game.copy(), table);
+            int firstDepth = 1 + (id & 1);
+            helpers.add(helper);
+            helperThreads.add(Thread.ofPlatform().daemon().name("search-helper-" + id)
+                    .start(() -> searchUntilStopped(helper, firstDepth)));
+        }
+        SearchResult result = null;
+        try {
+            for (int depth = 1; depth <= limits.depth(); depth++) {
+                //the first iteration always finishes, so there's always a move to return
+                int score = search.searchRoot(depth, depth == 1 ? 0 : deadline);
+                if (search.isStopped()) {
+                    break;
+                }
+                long elapsed = (System.nanoTime() - start) / 1_000_000;
+                result = new SearchResult(depth, score, search.principalVariation(), countNodes(search, helpers), elapsed);
+                onIteration.accept(result);
+                if (result.isMate() && Search.MATE - Math.abs(score) <= depth) {
+                    //a shorter mate can't turn up deeper
+                    break;
+                }
+            }
+        } finally {
+            current = null;
+            helpers.forEach(Search::stop);
+            for (Thread thread : helperThreads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        if (result == null) {
+            return null;
+        }
+        //count the work after the last finished iteration too, so nodes per second is right
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        return new SearchResult(result.depth(), result.score(), result.principalVariation(),
+                countNodes(search, helpers), elapsed);
+    }
+
+    private static void searchUntilStopped(Search helper, int firstDepth) {
+        for (int depth = firstDepth; depth <= SearchLimits.MAX_DEPTH && !helper.isStopped(); depth++) {
+            helper.searchRoot(depth, 0);
+        }
+    }
+
+    /**
+     * Adds up the nodes searched by every thread. The helpers are still running, so their
+     * counts may be a little behind.
+     */
+    private static long countNodes(Search search, List<Search> helpers) {
+        long nodes = search.getNodes();
+        for (Search helper : helpers) {
+            nodes += helper.getNodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * Stops the running search, which then returns its last finished iteration
+     */
+    public void stop() {
+        Search search = current;
+        if (search != null) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Forgets everything learned from earlier searches
+     */
+    public void clear() {
+        table.clear();
+    }
+}
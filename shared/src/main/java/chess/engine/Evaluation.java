@@ -0,0 +1,28 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+
+/**
+ * Static evaluation: material plus a bonus or penalty for where each piece stands, in
+ * centipawns, blended between middlegame and endgame values by how much material is left.
+ * The board keeps both totals up to date as pieces move, so evaluating a position is a
+ * multiply and divide rather than a walk over the pieces.
+ */
+final class Evaluation {
+    //indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN, for ordering captures
+    static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+
+    private Evaluation() {
+    }
+
+    /**
+     * @return the position's score in centipawns from the point of view of sideToMove
+     */
+    static int evaluate(ChessBoard board, ChessGame.TeamColor sideToMove) {
+        int phase = Math.min(board.getGamePhase(), ChessBoard.OPENING_PHASE);
+        int score = (board.getMidgameScore() * phase + board.getEndgameScore() * (ChessBoard.OPENING_PHASE - phase))
+                / ChessBoard.OPENING_PHASE;
+        return sideToMove == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+}
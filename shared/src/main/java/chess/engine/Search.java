@@ -0,0 +1,347 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.rules.MoveList;
+import chess.rules.PackedMove;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One thread's alpha-beta search over a game, in negamax form: every score is from the
+ * point of view of the side to move at that node. Moves are made and taken back on the game
+ * itself with {@link ChessGame#applyMove} and {@link ChessGame#unmakeMove}, so a search
+ * needs a game of its own.
+ * <p>
+ * Moves are tried in the order most likely to cause a cutoff: the transposition table's
+ * move, captures by most valuable victim then least valuable attacker, promotions, two
+ * killer moves per ply, then quiet moves by their history score. Leaves are extended with a
+ * quiescence search over captures so positions aren't scored mid-exchange.
+ */
+class Search {
+    static final int INFINITY = 32000;
+    static final int MATE = 31000;
+    static final int MAX_PLY = 128;
+
+    private static final int TT_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 28;
+    private static final int PROMOTION_SCORE = 1 << 27;
+    private static final int KILLER_SCORE = 1 << 26;
+    private static final int HISTORY_LIMIT = 1 << 24;
+
+    private final ChessGame game;
+    private final TranspositionTable table;
+    private final int[][] killers = new int[MAX_PLY][2];
+    //[color][from * 64 + to], how often a quiet move caused a cutoff, weighted by depth
+    private final int[][] history = new int[2][64 * 64];
+    private final int[][] moveScores = new int[MAX_PLY][256];
+    //triangular principal variation table: pv[ply] holds the best line from ply onward
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private long nodes;
+    private long deadline;
+    private volatile boolean stopped;
+
+    Search(ChessGame game, TranspositionTable table) {
+        this.game = game;
+        this.table = table;
+    }
+
+    /**
+     * Searches the root position to the given depth
+     *
+     * @param deadline System.nanoTime() to stop at, or 0 for none
+     * @return the score, which is meaningless if {@link #isStopped()} is now true
+     */
+    int searchRoot(int depth, long deadline) {
+        this.deadline = deadline;
+        return negamax(depth, 0, -INFINITY, INFINITY);
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return the positions searched so far, which other threads may see a little late
+     */
+    long getNodes() {
+        return nodes;
+    }
+
+    List<ChessMove> principalVariation() {
+        List<ChessMove> line = new ArrayList<>(pvLength[0]);
+        for (int i = 0; i < pvLength[0]; i++) {
+            line.add(PackedMove.toChessMove(pv[0][i]));
+        }
+        return line;
+    }
+
+    private void checkTime() {
+        if (deadline != 0 && System.nanoTime() >= deadline) {
+            stopped = true;
+        }
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        ChessGame.TeamColor toMove = game.getTeamTurn();
+        if (ply > 0) {
+            ChessGame.TeamColor winner = game.getVariantWinner();
+            if (winner != null) {
+                return winner == toMove ? MATE - ply : -MATE + ply;
+            }
+            if (game.getHalfmoveClock() >= 100 || game.getRepetitionCount() > 1) {
+                return 0;
+            }
+        }
+        boolean inCheck = game.isInCheck(toMove);
+        if (inCheck && ply < MAX_PLY / 2) {
+            depth++;
+        }
+        if (depth <= 0 || ply >= MAX_PLY - 1) {
+            return quiesce(ply, alpha, beta);
+        }
+        if ((++nodes & 2047) == 0) {
+            checkTime();
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        long key = game.getPositionKey();
+        long entry = table.probe(key);
+        int ttMove = 0;
+        if (entry != 0) {
+            ttMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = MoveList.acquire();
+        game.generateLegalMoves(moves);
+        if (moves.isEmpty()) {
+            moves.release();
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(moves, ttMove, ply, false);
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = nextMove(moves, i, moves.size(), ply);
+            boolean capture = isCapture(move);
+            game.applyMove(PackedMove.toChessMove(move));
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            game.unmakeMove();
+            if (stopped) {
+                moves.release();
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        if (!capture) {
+                            rememberQuietCutoff(toMove, move, depth, ply);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        moves.release();
+        int bound = bestScore >= beta ? TranspositionTable.LOWER_BOUND
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    /**
+     * Searches captures and promotions only until the position is quiet, letting the side to
+     * move stand pat on the static evaluation. When in check every move is searched instead,
+     * since standing pat isn't an option.
+     */
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if ((++nodes & 2047) == 0) {
+            checkTime();
+        }
+        if (stopped) {
+            return 0;
+        }
+        ChessGame.TeamColor toMove = game.getTeamTurn();
+        ChessGame.TeamColor winner = game.getVariantWinner();
+        if (winner != null) {
+            return winner == toMove ? MATE - ply : -MATE + ply;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluation.evaluate(game.getBoard(), toMove);
+        }
+        boolean inCheck = game.isInCheck(toMove);
+        if (!inCheck) {
+            int standPat = Evaluation.evaluate(game.getBoard(), toMove);
+            if (standPat >= beta) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+        }
+        MoveList moves = MoveList.acquire();
+        game.generateLegalMoves(moves);
+        if (moves.isEmpty()) {
+            moves.release();
+            return inCheck ? -MATE + ply : 0;
+        }
+        int searchable = scoreMoves(moves, 0, ply, !inCheck);
+        for (int i = 0; i < searchable; i++) {
+            int move = nextMove(moves, i, searchable, ply);
+            game.applyMove(PackedMove.toChessMove(move));
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            game.unmakeMove();
+            if (stopped) {
+                moves.release();
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePrincipalVariation(ply, move);
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        moves.release();
+        return alpha;
+    }
+
+    /**
+     * Gives every move an ordering score. With tacticalOnly, quiet moves are dropped from
+     * the list instead.
+     *
+     * @return how many moves are left to search
+     */
+    private int scoreMoves(MoveList moves, int ttMove, int ply, boolean tacticalOnly) {
+        ChessBoard board = game.getBoard();
+        int[] scores = moveScores[ply];
+        int[] colorHistory = history[game.getTeamTurn().ordinal()];
+        int kept = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int score;
+            if (move == ttMove) {
+                score = TT_MOVE_SCORE;
+            } else if (isCapture(move)) {
+                ChessPiece victim = board.getPiece(PackedMove.to(move));
+                int victimValue = victim == null ? Evaluation.PIECE_VALUES[ChessPiece.PieceType.PAWN.ordinal()]
+                        : Evaluation.PIECE_VALUES[victim.getPieceType().ordinal()];
+                int attacker = board.getPiece(PackedMove.from(move)).getPieceType().ordinal();
+                score = CAPTURE_SCORE + victimValue * 16 - Evaluation.PIECE_VALUES[attacker] / 16;
+            } else if (PackedMove.flag(move) == PackedMove.PROMOTE_QUEEN) {
+                score = PROMOTION_SCORE;
+            } else if (tacticalOnly) {
+                continue;
+            } else if (move == killers[ply][0]) {
+                score = KILLER_SCORE + 1;
+            } else if (move == killers[ply][1]) {
+                score = KILLER_SCORE;
+            } else {
+                score = colorHistory[(move & 0xFFF)];
+            }
+            moves.set(kept, move);
+            scores[kept++] = score;
+        }
+        //with tacticalOnly the moves past kept are left over, and never searched
+        return kept;
+    }
+
+    /**
+     * Swaps the best scoring move between index and count into index, a selection sort done
+     * one step at a time since a cutoff often means the rest never get looked at
+     */
+    private int nextMove(MoveList moves, int index, int count, int ply) {
+        int[] scores = moveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves.get(best);
+        if (best != index) {
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return move;
+    }
+
+    private boolean isCapture(int move) {
+        int flag = PackedMove.flag(move);
+        //a Chess960 castle lands on the king's own rook
+        return flag == PackedMove.EN_PASSANT
+                || (flag != PackedMove.CASTLE && game.getBoard().getPiece(PackedMove.to(move)) != null);
+    }
+
+    private void rememberQuietCutoff(ChessGame.TeamColor color, int move, int depth, int ply) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] colorHistory = history[color.ordinal()];
+        colorHistory[move & 0xFFF] += depth * depth;
+        if (colorHistory[move & 0xFFF] > HISTORY_LIMIT) {
+            for (int i = 0; i < colorHistory.length; i++) {
+                colorHistory[i] /= 2;
+            }
+        }
+    }
+
+    private void updatePrincipalVariation(int ply, int move) {
+        pv[ply][ply] = move;
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+        pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+    }
+
+    /**
+     * Mate scores count plies from the root, but the table is shared between nodes at any
+     * ply, so they're stored counting from the node instead
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,25 @@
+package chess.engine;
+
+/**
+ * How long a search may run: it stops at whichever of the depth or time limit comes first
+ *
+ * @param depth     the deepest iteration to search, in plies
+ * @param timeMillis how long to search for, or 0 for no time limit
+ */
+public record SearchLimits(int depth, long timeMillis) {
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Search depth must be 1 to " + MAX_DEPTH + ", not " + depth);
+        }
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0);
+    }
+
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(MAX_DEPTH, timeMillis);
+    }
+}
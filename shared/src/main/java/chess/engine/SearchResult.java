@@ -0,0 +1,43 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * What a search found after finishing an iteration
+ *
+ * @param score              centipawns from the point of view of the side to move, or a
+ *                           mate score, see {@link #isMate()}
+ * @param principalVariation the best line found, starting with the move to play
+ * @param nodes              positions searched so far, counting earlier iterations
+ */
+public record SearchResult(int depth, int score, List<ChessMove> principalVariation, long nodes, long elapsedMillis) {
+
+    /**
+     * @return the move to play, or null if the side to move has no legal moves
+     */
+    public ChessMove bestMove() {
+        return principalVariation.isEmpty() ? null : principalVariation.getFirst();
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * @return how many moves until mate, negative when the side to move is the one being
+     * mated, or 0 if the score isn't a mate score
+     */
+    public int mateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Search.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+
+    public long nodesPerSecond() {
+        return elapsedMillis == 0 ? nodes * 1000 : nodes * 1000 / elapsedMillis;
+    }
+}
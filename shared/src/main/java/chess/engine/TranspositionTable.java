@@ -0,0 +1,74 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Search results by position key, kept in one {@code long[]} so the table is a single
+ * allocation no matter how many positions it holds. Each entry is two longs: the position
+ * key, then the move, score, depth and bound packed into a second long.
+ * <p>
+ * The table has a fixed number of entries, a power of two, and a position can only go in
+ * the one slot its key picks. A new result replaces whatever is there unless it's the same
+ * position searched deeper.
+ * <p>
+ * Every search thread reads and writes the table without locking. The first long of an
+ * entry holds the key XORed with the second, so if two threads write the same slot at once
+ * and it ends up with one thread's key and the other's data, the pair no longer decodes to
+ * either key and probes treat it as a miss.
+ */
+class TranspositionTable {
+    static final int EXACT = 0;
+    static final int LOWER_BOUND = 1;
+    static final int UPPER_BOUND = 2;
+    //set in every stored entry, so a probe result of 0 always means a miss
+    private static final long PRESENT = 1L << 42;
+
+    private final long[] table;
+    private final int mask;
+
+    TranspositionTable(int megabytes) {
+        int entries = Integer.highestOneBit(Math.max(1, megabytes) * (1 << 20) / 16);
+        table = new long[entries * 2];
+        mask = entries - 1;
+    }
+
+    /**
+     * @return the packed entry for the position, or 0 if it isn't in the table
+     */
+    long probe(long key) {
+        int index = ((int) key & mask) << 1;
+        long data = table[index + 1];
+        return (table[index] ^ data) == key ? data : 0;
+    }
+
+    void store(long key, int move, int score, int depth, int bound) {
+        int index = ((int) key & mask) << 1;
+        long old = table[index + 1];
+        if ((table[index] ^ old) == key && depth(old) > depth) {
+            return;
+        }
+        long data = (move & 0xFFFFL) | (score & 0xFFFFL) << 16 | (long) depth << 32 | (long) bound << 40 | PRESENT;
+        table[index] = key ^ data;
+        table[index + 1] = data;
+    }
+
+    void clear() {
+        Arrays.fill(table, 0);
+    }
+
+    static int move(long entry) {
+        return (int) (entry & 0xFFFF);
+    }
+
+    static int score(long entry) {
+        return (short) (entry >>> 16);
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    static int bound(long entry) {
+        return (int) (entry >>> 40) & 3;
+    }
+}
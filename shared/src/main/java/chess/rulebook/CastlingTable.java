@@ -0,0 +1,150 @@
+package chess.rulebook;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.rules.AttackTables;
+
+/**
+ * Where the king and rooks start and finish for each castle, worked out once per game so
+ * move generation and {@link ChessGame#applyMove} look squares up instead of assuming the
+ * standard e, a and h files. Sides are {@link #KING_SIDE} (the h-file rook) and
+ * {@link #QUEEN_SIDE}, and every array is indexed [color][side] or [color].
+ * <p>
+ * A castle is written as the king moving to {@link #moveTarget}: its destination square in
+ * standard chess, and the castling rook's square in Chess960, where the king may only move
+ * one square or not at all.
+ */
+public final class CastlingTable {
+    public static final int KING_SIDE = 0;
+    public static final int QUEEN_SIDE = 1;
+    public static final CastlingTable STANDARD = new CastlingTable(4, 7, 0, false);
+
+    private final int[] kingFrom = new int[2];
+    private final int[][] rookFrom = new int[2][2];
+    private final int[][] kingTo = new int[2][2];
+    private final int[][] rookTo = new int[2][2];
+    private final int[][] moveTarget = new int[2][2];
+    //squares that have to be empty apart from the castling king and rook
+    private final long[][] emptyMask = new long[2][2];
+    //squares the king passes through or lands on, which can't be attacked
+    private final long[][] kingPath = new long[2][2];
+    //starting files packed into bits, 0 for standard chess
+    private final long key;
+
+    private CastlingTable(int kingFile, int kingRookFile, int queenRookFile, boolean chess960) {
+        for (int color = 0; color < 2; color++) {
+            int rank = color == 0 ? 0 : 56;
+            kingFrom[color] = rank + kingFile;
+            rookFrom[color][KING_SIDE] = rank + kingRookFile;
+            rookFrom[color][QUEEN_SIDE] = rank + queenRookFile;
+            kingTo[color][KING_SIDE] = rank + 6;
+            rookTo[color][KING_SIDE] = rank + 5;
+            kingTo[color][QUEEN_SIDE] = rank + 2;
+            rookTo[color][QUEEN_SIDE] = rank + 3;
+            for (int side = 0; side < 2; side++) {
+                moveTarget[color][side] = chess960 ? rookFrom[color][side] : kingTo[color][side];
+                long pieces = (1L << kingFrom[color]) | (1L << rookFrom[color][side]);
+                emptyMask[color][side] = (span(kingFrom[color], kingTo[color][side])
+                        | span(rookFrom[color][side], rookTo[color][side])) & ~pieces;
+                kingPath[color][side] = span(kingFrom[color], kingTo[color][side]) & ~(1L << kingFrom[color]);
+            }
+        }
+        key = chess960 ? 1L << 9 | kingFile | kingRookFile << 3 | queenRookFile << 6 : 0;
+    }
+
+    /**
+     * Reads the castling squares off a Chess960 starting position, using white's back rank
+     * since black's mirrors it
+     */
+    public static CastlingTable chess960(ChessBoard board) {
+        int kingFile = Long.numberOfTrailingZeros(board.getPieceBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        long rooks = board.getPieceBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK) & 0xFFL;
+        if (kingFile > 7 || Long.bitCount(rooks) != 2) {
+            throw new IllegalArgumentException("Not a Chess960 starting position:\n" + board);
+        }
+        return chess960(kingFile, 63 - Long.numberOfLeadingZeros(rooks), Long.numberOfTrailingZeros(rooks));
+    }
+
+    static CastlingTable chess960(int kingFile, int kingRookFile, int queenRookFile) {
+        return new CastlingTable(kingFile, kingRookFile, queenRookFile, true);
+    }
+
+    int kingFile() {
+        return kingFrom[0];
+    }
+
+    int kingRookFile() {
+        return rookFrom[0][KING_SIDE];
+    }
+
+    int queenRookFile() {
+        return rookFrom[0][QUEEN_SIDE];
+    }
+
+    private static long span(int a, int b) {
+        return AttackTables.between(a, b) | (1L << a) | (1L << b);
+    }
+
+    public int kingFrom(ChessGame.TeamColor color) {
+        return kingFrom[color.ordinal()];
+    }
+
+    public int rookFrom(ChessGame.TeamColor color, int side) {
+        return rookFrom[color.ordinal()][side];
+    }
+
+    public int kingTo(ChessGame.TeamColor color, int side) {
+        return kingTo[color.ordinal()][side];
+    }
+
+    public int rookTo(ChessGame.TeamColor color, int side) {
+        return rookTo[color.ordinal()][side];
+    }
+
+    public int moveTarget(ChessGame.TeamColor color, int side) {
+        return moveTarget[color.ordinal()][side];
+    }
+
+    long emptyMask(ChessGame.TeamColor color, int side) {
+        return emptyMask[color.ordinal()][side];
+    }
+
+    long kingPath(ChessGame.TeamColor color, int side) {
+        return kingPath[color.ordinal()][side];
+    }
+
+    /**
+     * @return the side a king move from one square to another castles to, or -1 if it
+     * isn't written like a castle
+     */
+    public int castlingSide(ChessGame.TeamColor color, int from, int to) {
+        int c = color.ordinal();
+        if (from != kingFrom[c]) {
+            return -1;
+        }
+        if (to == moveTarget[c][KING_SIDE]) {
+            return KING_SIDE;
+        }
+        return to == moveTarget[c][QUEEN_SIDE] ? QUEEN_SIDE : -1;
+    }
+
+    /**
+     * @return the side whose castling rook starts on square, or -1
+     */
+    public int rookSide(ChessGame.TeamColor color, int square) {
+        int c = color.ordinal();
+        if (square == rookFrom[c][KING_SIDE]) {
+            return KING_SIDE;
+        }
+        return square == rookFrom[c][QUEEN_SIDE] ? QUEEN_SIDE : -1;
+    }
+
+    /**
+     * @return the starting files packed into a number, 0 for standard chess, so games with
+     * different castling squares get different position keys
+     */
+    public long getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,98 @@
+package chess.rulebook;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chess960: the back rank pieces start shuffled, with the bishops on opposite colors and
+ * the king between the rooks. Castling puts the king and rook on the same squares as in
+ * standard chess, and is written as the king moving onto its own rook.
+ */
+public class Chess960RuleBook extends FIDERuleBook {
+    //the empty squares the two knights take, out of the five left after the bishops and queen
+    private static final int[][] KNIGHT_PAIRS = {
+            {0, 1}, {0, 2}, {0, 3}, {0, 4}, {1, 2}, {1, 3}, {1, 4}, {2, 3}, {2, 4}, {3, 4},
+    };
+
+    //the starting files of the king and rooks, saved so the castling table can be rebuilt
+    private int kingFile;
+    private int kingRookFile;
+    private int queenRookFile;
+    private transient CastlingTable castling;
+
+    public Chess960RuleBook(ChessBoard board, CastlingTable castling) {
+        super(board, Variant.CHESS960);
+        this.castling = castling;
+        this.kingFile = castling.kingFile();
+        this.kingRookFile = castling.kingRookFile();
+        this.queenRookFile = castling.queenRookFile();
+    }
+
+    public Chess960RuleBook() {
+        super(null, Variant.CHESS960);
+    }
+
+    @Override
+    public CastlingTable getCastlingTable() {
+        if (castling == null) {
+            castling = CastlingTable.chess960(kingFile, kingRookFile, queenRookFile);
+        }
+        return castling;
+    }
+
+    @Override
+    public long getVariantKey() {
+        return super.getVariantKey() ^ getCastlingTable().getKey() * 0x9E37_79B9_7F4A_7C15L;
+    }
+
+    public static ChessBoard randomStartingBoard() {
+        return startingBoard(ThreadLocalRandom.current().nextInt(960));
+    }
+
+    /**
+     * Sets up one of the 960 starting positions by its standard number, where 518 is the
+     * standard chess position
+     *
+     * @param number 0 to 959
+     */
+    public static ChessBoard startingBoard(int number) {
+        if (number < 0 || number >= 960) {
+            throw new IllegalArgumentException("No Chess960 position " + number);
+        }
+        ChessPiece.PieceType[] rank = new ChessPiece.PieceType[8];
+        rank[(number % 4) * 2 + 1] = ChessPiece.PieceType.BISHOP;
+        number /= 4;
+        rank[(number % 4) * 2] = ChessPiece.PieceType.BISHOP;
+        number /= 4;
+        placeOnEmpty(rank, number % 6, ChessPiece.PieceType.QUEEN);
+        number /= 6;
+        //place the second knight first so the first one's index still counts the same empty squares
+        placeOnEmpty(rank, KNIGHT_PAIRS[number][1], ChessPiece.PieceType.KNIGHT);
+        placeOnEmpty(rank, KNIGHT_PAIRS[number][0], ChessPiece.PieceType.KNIGHT);
+        placeOnEmpty(rank, 0, ChessPiece.PieceType.ROOK);
+        placeOnEmpty(rank, 0, ChessPiece.PieceType.KING);
+        placeOnEmpty(rank, 0, ChessPiece.PieceType.ROOK);
+
+        ChessBoard board = new ChessBoard();
+        for (int col = 1; col <= 8; col++) {
+            board.addPiece(ChessPosition.of(1, col), new ChessPiece(ChessGame.TeamColor.WHITE, rank[col - 1]));
+            board.addPiece(ChessPosition.of(2, col), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            board.addPiece(ChessPosition.of(7, col), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            board.addPiece(ChessPosition.of(8, col), new ChessPiece(ChessGame.TeamColor.BLACK, rank[col - 1]));
+        }
+        return board;
+    }
+
+    private static void placeOnEmpty(ChessPiece.PieceType[] rank, int index, ChessPiece.PieceType type) {
+        for (int file = 0; file < rank.length; file++) {
+            if (rank[file] == null && index-- == 0) {
+                rank[file] = type;
+                return;
+            }
+        }
+    }
+}
@@ -1,100 +1,75 @@
 package chess.rulebook;
 
 import chess.*;
+import chess.rules.AttackTables;
+import chess.rules.MoveList;
+import chess.rules.PackedMove;
 
 import java.util.Collection;
 import java.util.HashSet;
 
 public class FIDERuleBook extends RuleBook{
-    private final Collection<ChessMove> whiteMoves = new HashSet<>();
-    private final Collection<ChessMove> blackMoves = new HashSet<>();
+    private static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
     private boolean whiteARookMoved = false;
     private boolean whiteHRookMoved = false;
     private boolean blackARookMoved = false;
     private boolean blackHRookMoved = false;
     private boolean whiteKingMoved = false;
     private boolean blackKingMoved = false;
-    private ChessBoard board;
+    private int enPassantSquare = -1;
+    private final Variant variant;
+    //the game's board, which is saved with the game rather than again here
+    private transient ChessBoard board;
     private final MoveHistory moveHistory = new MoveHistory();
 
     public FIDERuleBook(ChessBoard board) {
-        this.board = board;
+        this(board, Variant.STANDARD);
     }
 
     public FIDERuleBook() {
+        this.variant = Variant.STANDARD;
     }
 
-    public void getAllMoves(ChessBoard board) {
-        getAllMovesByColor(ChessGame.TeamColor.WHITE, board);
-        getAllMovesByColor(ChessGame.TeamColor.BLACK, board);
-    }
-
-    public void getAllMovesByColor(ChessGame.TeamColor color, ChessBoard board) {
-        if (color == ChessGame.TeamColor.WHITE) {
-            whiteMoves.clear();
-            whiteMoves.addAll(board.getAllMovesForTeam(color));
-        } else {
-            blackMoves.clear();
-            blackMoves.addAll(board.getAllMovesForTeam(color));
-        }
+    protected FIDERuleBook(ChessBoard board, Variant variant) {
+        this.board = board;
+        this.variant = variant;
     }
 
+    /**
+     * Generates the piece's moves every time. {@link ChessGame} caches legal moves per position
+     * in the {@link SharedMoveCache}, so it only comes here, through
+     * {@link #generateLegalMoves}, on a miss.
+     */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
         ChessPiece movingPiece = board.getPiece(startPosition);
-        ChessGame.TeamColor movingColor = movingPiece.getTeamColor();
-        ChessGame.TeamColor oppositeColor = movingColor == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
-        Collection<ChessMove> allMoves = movingPiece.pieceMoves(board, startPosition);
-        Collection<ChessMove> realMoves = new HashSet<>();
-        for (ChessMove move : allMoves) {
-            //copy board, make move, and test for check?
-            ChessBoard tempBoard = new ChessBoard(board);
-            tempBoard.addPiece(move.getEndPosition(), movingPiece);
-            tempBoard.removePiece(move.getStartPosition());
-            getAllMoves(tempBoard);
-            if (!isInCheck(movingColor, tempBoard)) {
-                realMoves.add(move);
-            }
-        }
-        if (movingPiece.getPieceType() == ChessPiece.PieceType.KING) {
-            Collection<ChessMove> castleMoves = getCastleMoves(movingColor, realMoves, board);
-            realMoves.addAll(castleMoves);
+        if (movingPiece == null) {
+            return null;
         }
-        if (movingPiece.getPieceType() == ChessPiece.PieceType.PAWN) {
-            Collection<ChessMove> enPassant = getEnPassantMove(movingColor, realMoves, startPosition, board);
-            realMoves.addAll(enPassant);
+        ChessGame.TeamColor color = movingPiece.getTeamColor();
+        MoveList moves = MoveList.acquire();
+        new LegalMoveGenerator(board, color, getCastlingTable()).generate(ChessBoard.squareIndex(startPosition),
+                canCastleKingSide(color), canCastleQueenSide(color), enPassantSquare, moves);
+        Collection<ChessMove> realMoves = new HashSet<>();
+        for (int i = 0; i < moves.size(); i++) {
+            realMoves.add(PackedMove.toChessMove(moves.get(i)));
         }
-
-
+        moves.release();
         return realMoves;
     }
 
-    private Collection<ChessMove> getCastleMoves(ChessGame.TeamColor color, Collection<ChessMove> kingMoves, ChessBoard board) {
-        if (color == ChessGame.TeamColor.WHITE) {
-            return getCastleOptions(ChessGame.TeamColor.WHITE, kingMoves, board);
-        } else {
-            return getCastleOptions(ChessGame.TeamColor.BLACK, kingMoves, board);
-        }
-    }
-
-    private Collection<ChessMove> getEnPassantMove(ChessGame.TeamColor color, Collection<ChessMove> pawnMoves,
-                                                   ChessPosition pawnPosition, ChessBoard board) {
-        if (color == ChessGame.TeamColor.WHITE) {
-            return getEnPassantOptions(ChessGame.TeamColor.WHITE, pawnMoves, pawnPosition, board);
-        } else {
-            return getEnPassantOptions(ChessGame.TeamColor.BLACK, pawnMoves, pawnPosition, board);
-        }
+    /**
+     * Adds every legal move for the team to moves, as {@link chess.rules.PackedMove} ints.
+     * Nothing is cached here; {@link ChessGame} keeps the results in the {@link SharedMoveCache}.
+     */
+    public void generateLegalMoves(ChessGame.TeamColor teamColor, MoveList moves) {
+        new LegalMoveGenerator(board, teamColor, getCastlingTable()).generateAll(canCastleKingSide(teamColor),
+                canCastleQueenSide(teamColor), enPassantSquare, moves);
     }
 
     public boolean isBoardValid(ChessBoard board) {
         return false;
     }
 
-    private boolean kingInStartingPos(ChessPosition pos) {
-        int col = pos.getColumn();
-        int row = pos.getRow();
-        return (row == 1 || row == 8) && col == 5;
-    }
-
     private boolean kingNoMoved(ChessGame.TeamColor color) {
         return color == ChessGame.TeamColor.WHITE ? !whiteKingMoved : !blackKingMoved;
     }
@@ -107,146 +82,114 @@ public class FIDERuleBook extends RuleBook{
         return color == ChessGame.TeamColor.WHITE ? !whiteHRookMoved : !blackHRookMoved;
     }
 
-    private boolean emptySquare(ChessPosition square) {
-        return board.getPiece(square) == null;
+    private boolean canCastleKingSide(ChessGame.TeamColor color) {
+        return kingNoMoved(color) && rookHNoMoved(color);
     }
 
-    private Collection<ChessMove> validCastleMoves(Collection<ChessMove> castleMoves, ChessPiece movingKing) {
-        Collection<ChessMove> realMoves = new HashSet<>();
-        for (ChessMove move : castleMoves) {
-            //copy board, make move, and test for check
-            ChessBoard tempBoard = new ChessBoard(board);
-            tempBoard.addPiece(move.getEndPosition(), movingKing);
-            tempBoard.removePiece(move.getStartPosition());
-            getAllMoves(tempBoard);
-            if (!isInCheck(movingKing.getTeamColor(), tempBoard)) {
-                realMoves.add(move);
-            }
-        }
-        return realMoves;
+    private boolean canCastleQueenSide(ChessGame.TeamColor color) {
+        return kingNoMoved(color) && rookANoMoved(color);
     }
 
-    private Collection<ChessMove> getCastleOptions(ChessGame.TeamColor teamColor, Collection<ChessMove> kingMoves, ChessBoard board) {
-        Collection<ChessMove> result = new HashSet<>();
-        ChessPosition kingPos = board.getPosition(new ChessPiece(teamColor, ChessPiece.PieceType.KING));
-        ChessPiece king = board.getPiece(kingPos);
-        int kingCol = kingPos.getColumn();
-        int kingRow = kingPos.getRow();
-        if (kingNoMoved(teamColor) && kingInStartingPos(kingPos)) {
-            if (!isInCheck(teamColor, board)) {
-                boolean kingSide = false, queenSide = false;
-                Collection<ChessMove> castleMoves = new HashSet<>();
-                for (ChessMove validMove : kingMoves) {
-                    int moveCol = validMove.getEndPosition().getColumn();
-                    int moveRow = validMove.getEndPosition().getRow();
-                    if (moveCol == kingCol - 1 && moveRow == kingRow) {
-                        queenSide = emptySquare(new ChessPosition(kingRow, kingCol - 1));
-                    } else if (moveCol == kingCol + 1 && moveRow == kingRow) {
-                        kingSide = emptySquare(new ChessPosition(kingRow, kingRow + 1));;
-                    }
-                }
-                if (rookANoMoved(teamColor) && queenSide && emptySquare(new ChessPosition(kingRow, 3))) {
-                    castleMoves.add(new ChessMove(kingPos, new ChessPosition(kingRow, kingCol - 2)));
-                }
-                if (rookHNoMoved(teamColor) && kingSide && emptySquare(new ChessPosition(kingRow, 7))) {
-                    castleMoves.add(new ChessMove(kingPos, new ChessPosition(kingRow, kingCol + 2)));
-                }
-                result.addAll(validCastleMoves(castleMoves, king));
-            }
-        }
-        return result;
+    /**
+     * Looks outward from the king's square for an enemy piece that attacks it, see
+     * {@link AttackTables#isAttacked}. A board without the team's king is never in check.
+     */
+    public boolean isInCheck(ChessGame.TeamColor teamColor, ChessBoard board) {
+        int king = board.getKingSquare(teamColor);
+        ChessGame.TeamColor enemyColor = teamColor == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        return king != -1 && AttackTables.isAttacked(board, king, board.getOccupied(), enemyColor);
     }
 
-    private Collection<ChessMove> validEnPassantMove(Collection<ChessMove> enPassantMove, ChessPiece movingPawn, ChessPosition capturedPos) {
-        Collection<ChessMove> realMoves = new HashSet<>();
-        for (ChessMove move : enPassantMove) {
-            //copy board, make move, and test for check
-            ChessBoard tempBoard = new ChessBoard(board);
-            tempBoard.addPiece(move.getEndPosition(), movingPawn);
-            tempBoard.removePiece(move.getStartPosition());
-            tempBoard.removePiece(capturedPos);
-            getAllMoves(tempBoard);
-            if (!isInCheck(movingPawn.getTeamColor(), tempBoard)) {
-                realMoves.add(move);
-            }
-        }
-        return realMoves;
+    public boolean isInCheckmate(ChessGame.TeamColor teamColor) {
+        return isInCheck(teamColor, board) && !hasLegalMove(teamColor);
     }
 
-    private Collection<ChessMove> getEnPassantOptions(ChessGame.TeamColor color, Collection<ChessMove> pawnMoves,
-                                                      ChessPosition pawnPos, ChessBoard board) {
-        Collection<ChessMove> result = new HashSet<>();
-        MadeMove lastMove = moveHistory.getLastMove();
-        if (lastMove != null && lastMove.getPiece() == MadeMove.MovedPiece.PAWN) {
-            int lastMoveStartRow = lastMove.getMove().getStartPosition().getRow();
-            int lastMoveEndRow = lastMove.getMove().getEndPosition().getRow();
-            if (Math.abs(lastMoveEndRow - lastMoveStartRow) > 1) {
-                int pawnRow = pawnPos.getRow();
-                int pawnCol = pawnPos.getColumn();
-                int lastMoveEndCol = lastMove.getMove().getEndPosition().getColumn();
-                if (pawnRow == lastMoveEndRow && (Math.abs(pawnCol - lastMoveEndCol) == 1)) {
-                    Collection<ChessMove> enPassantMove = new HashSet<>();
-                    ChessPiece pawn = board.getPiece(pawnPos);
-                    if (color == ChessGame.TeamColor.WHITE) {
-                        enPassantMove.add(new ChessMove(pawnPos, new ChessPosition(pawnRow + 1, lastMoveEndCol)));
-                    } else {
-                        enPassantMove.add(new ChessMove(pawnPos, new ChessPosition(pawnRow - 1, lastMoveEndCol)));
-                    }
-                    result.addAll(validEnPassantMove(enPassantMove, pawn, lastMove.getMove().getEndPosition()));
-                }
-            }
-        }
-        return result;
+    public boolean isInStalemate(ChessGame.TeamColor teamColor) {
+        return !isInCheck(teamColor, board) && !hasLegalMove(teamColor);
     }
 
-    public boolean isInCheck(ChessGame.TeamColor teamColor, ChessBoard board) {
-        ChessPosition kingPos = board.getPosition(new ChessPiece(teamColor, ChessPiece.PieceType.KING));
-        if (teamColor == ChessGame.TeamColor.WHITE) {
-            getAllMovesByColor(ChessGame.TeamColor.BLACK, board);
-            for (ChessMove move : blackMoves) {
-                if (move.getEndPosition().equals(kingPos)) {
-                    return true;
-                }
+    private boolean hasLegalMove(ChessGame.TeamColor teamColor) {
+        MoveList moves = MoveList.acquire();
+        generateLegalMoves(teamColor, moves);
+        boolean any = !moves.isEmpty();
+        moves.release();
+        return any;
+    }
+
+    /**
+     * Neither side can checkmate with only kings and at most one minor piece, or with only
+     * kings and bishops that all stand on the same color of square
+     */
+    public boolean isInsufficientMaterial() {
+        long signature = board.getMaterialSignature();
+        int minors = 0;
+        int knights = 0;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            if (ChessBoard.pieceCount(signature, color, ChessPiece.PieceType.PAWN) != 0
+                    || ChessBoard.pieceCount(signature, color, ChessPiece.PieceType.ROOK) != 0
+                    || ChessBoard.pieceCount(signature, color, ChessPiece.PieceType.QUEEN) != 0) {
+                return false;
             }
+            knights += ChessBoard.pieceCount(signature, color, ChessPiece.PieceType.KNIGHT);
+            minors += ChessBoard.pieceCount(signature, color, ChessPiece.PieceType.BISHOP);
         }
-        else {
-            getAllMovesByColor(ChessGame.TeamColor.WHITE, board);
-            for (ChessMove move : whiteMoves) {
-                if (move.getEndPosition().equals(kingPos)) {
-                    return true;
-                }
-            }
+        minors += knights;
+        if (minors <= 1) {
+            return true;
         }
-        return false;
+        if (knights != 0) {
+            return false;
+        }
+        long bishops = board.getPieceBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP)
+                | board.getPieceBitboard(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
+        return (bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0;
     }
 
-    private boolean checkForMoves(ChessGame.TeamColor teamColor) {
-        ChessPosition checkedKingPos = board.getPosition(new ChessPiece(teamColor, ChessPiece.PieceType.KING));
-        ChessPiece checkedKing = board.getPiece(checkedKingPos);
-        Collection<ChessPosition> allPiecesOfColor = board.getAllPiecesByColor(teamColor);
-        Collection<ChessMove> allValidMoves = new HashSet<>();
-        for (ChessPosition piece : allPiecesOfColor) {
-            allValidMoves.addAll(validMoves(piece));
-        }
-        return allValidMoves.isEmpty();
+    public Variant getVariant() {
+        return variant;
     }
 
-    public boolean isInCheckmate(ChessGame.TeamColor teamColor) {
-        if (!isInCheck(teamColor, board)) {
-            return false;
-        }
-        return checkForMoves(teamColor);
+    public CastlingTable getCastlingTable() {
+        return CastlingTable.STANDARD;
     }
 
-    public boolean isInStalemate(ChessGame.TeamColor teamColor) {
-        if (isInCheck(teamColor, board)) {
-            return false;
-        }
-        return checkForMoves(teamColor);
+    public long getVariantKey() {
+        return variant.getKey();
+    }
+
+    /**
+     * Standard chess is only won by checkmate
+     */
+    public ChessGame.TeamColor getVariantWinner() {
+        return null;
+    }
+
+    public void resetVariantState() {
+    }
+
+    protected ChessBoard getBoard() {
+        return board;
     }
 
     public void recordMove(ChessGame.TeamColor color, ChessMove move, MadeMove.MovedPiece piece, MadeMove.MoveType type) {
         moveHistory.recordMove(color, move, piece, type);
+        int startRow = move.getStartPosition().getRow();
+        int endRow = move.getEndPosition().getRow();
+        if (piece == MadeMove.MovedPiece.PAWN && Math.abs(endRow - startRow) == 2) {
+            //the square the pawn skipped over
+            enPassantSquare = ChessBoard.squareIndex((startRow + endRow) / 2, move.getStartPosition().getColumn());
+        } else {
+            enPassantSquare = -1;
+        }
+    }
+
+    public void removeLastMove() {
+        moveHistory.removeLastMove();
+    }
+
+    public MoveHistory getMoveHistory() {
+        return moveHistory;
     }
 
     public void setBoard(ChessBoard board) {
@@ -285,4 +228,50 @@ public class FIDERuleBook extends RuleBook{
         whiteKingMoved = false;
         blackKingMoved = false;
     }
+
+    /**
+     * @return the moved flags packed into bits: white king, A rook, H rook, then the same for black
+     */
+    public int getMovedPieces() {
+        int movedPieces = 0;
+        movedPieces |= whiteKingMoved ? 1 : 0;
+        movedPieces |= whiteARookMoved ? 1 << 1 : 0;
+        movedPieces |= whiteHRookMoved ? 1 << 2 : 0;
+        movedPieces |= blackKingMoved ? 1 << 3 : 0;
+        movedPieces |= blackARookMoved ? 1 << 4 : 0;
+        movedPieces |= blackHRookMoved ? 1 << 5 : 0;
+        return movedPieces;
+    }
+
+    public void setMovedPieces(int movedPieces) {
+        whiteKingMoved = (movedPieces & 1) != 0;
+        whiteARookMoved = (movedPieces & 1 << 1) != 0;
+        whiteHRookMoved = (movedPieces & 1 << 2) != 0;
+        blackKingMoved = (movedPieces & 1 << 3) != 0;
+        blackARookMoved = (movedPieces & 1 << 4) != 0;
+        blackHRookMoved = (movedPieces & 1 << 5) != 0;
+    }
+
+    /**
+     * @return the castling rights left as bits: white king side, white queen side, then black
+     */
+    public int getCastlingRights() {
+        int rights = 0;
+        rights |= canCastleKingSide(ChessGame.TeamColor.WHITE) ? 1 : 0;
+        rights |= canCastleQueenSide(ChessGame.TeamColor.WHITE) ? 1 << 1 : 0;
+        rights |= canCastleKingSide(ChessGame.TeamColor.BLACK) ? 1 << 2 : 0;
+        rights |= canCastleQueenSide(ChessGame.TeamColor.BLACK) ? 1 << 3 : 0;
+        return rights;
+    }
+
+    /**
+     * @return the 0..63 index of the square a pawn skipped with a double move last turn, or -1
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public void setEnPassantSquare(int square) {
+        enPassantSquare = square;
+    }
 }
@@ -0,0 +1,32 @@
+package chess.rulebook;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * King of the Hill: standard chess, except a king that reaches one of the four center
+ * squares wins on the spot
+ */
+public class KingOfTheHillRuleBook extends FIDERuleBook {
+    //d4, e4, d5 and e5
+    private static final long HILL = 0x0000_0018_1800_0000L;
+
+    public KingOfTheHillRuleBook(ChessBoard board) {
+        super(board, Variant.KING_OF_THE_HILL);
+    }
+
+    public KingOfTheHillRuleBook() {
+        super(null, Variant.KING_OF_THE_HILL);
+    }
+
+    @Override
+    public ChessGame.TeamColor getVariantWinner() {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            if ((getBoard().getPieceBitboard(color, ChessPiece.PieceType.KING) & HILL) != 0) {
+                return color;
+            }
+        }
+        return null;
+    }
+}
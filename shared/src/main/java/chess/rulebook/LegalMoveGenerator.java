@@ -0,0 +1,214 @@
+package chess.rulebook;
+
+import chess.*;
+import chess.rules.AttackTables;
+import chess.rules.MagicBitboards;
+import chess.rules.MoveList;
+import chess.rules.PackedMove;
+
+import static chess.ChessPiece.PieceType.*;
+
+/**
+ * Generates only legal moves for one side of a position.
+ * <p>
+ * The constructor works out the king's square, the pieces giving check, our pinned
+ * pieces and every square the enemy attacks. Moves are then filtered against those
+ * masks as they are generated, so no move is ever played out to see if it leaves the
+ * king in check (en passant being the one exception, see {@link #enPassantIsSafe}).
+ */
+class LegalMoveGenerator {
+    private static final int[] PROMOTION_FLAGS = {
+            PackedMove.PROMOTE_QUEEN, PackedMove.PROMOTE_ROOK, PackedMove.PROMOTE_BISHOP, PackedMove.PROMOTE_KNIGHT,
+    };
+
+    private final ChessBoard board;
+    private final CastlingTable castling;
+    private final ChessGame.TeamColor color;
+    private final ChessGame.TeamColor enemyColor;
+    private final long ownPieces;
+    private final long enemyPieces;
+    private final long occupied;
+    private final int kingSquare;
+    private final long checkers;
+    private final long pinned;
+    //squares a non-king move has to land on to deal with check
+    private final long checkMask;
+    private final long enemyAttacks;
+
+    LegalMoveGenerator(ChessBoard board, ChessGame.TeamColor color, CastlingTable castling) {
+        this.board = board;
+        this.castling = castling;
+        this.color = color;
+        this.enemyColor = color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        this.ownPieces = board.getColorBitboard(color);
+        this.enemyPieces = board.getColorBitboard(enemyColor);
+        this.occupied = board.getOccupied();
+        int king = board.getKingSquare(color);
+        if (king == -1) {
+            //boards without a king can't be in check, so nothing is pinned either
+            kingSquare = -1;
+            checkers = 0;
+            pinned = 0;
+            checkMask = ~0L;
+            enemyAttacks = AttackTables.attackedSquares(board, occupied, enemyColor);
+            return;
+        }
+        kingSquare = king;
+        checkers = AttackTables.attackersTo(board, kingSquare, occupied, enemyColor);
+        //the king can't hide from a slider by stepping back along its ray
+        enemyAttacks = AttackTables.attackedSquares(board, occupied & ~(1L << kingSquare), enemyColor);
+        pinned = findPinned();
+        if (checkers == 0) {
+            checkMask = ~0L;
+        } else if (Long.bitCount(checkers) == 1) {
+            checkMask = checkers | AttackTables.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+        } else {
+            //double check, only the king can move
+            checkMask = 0;
+        }
+    }
+
+    private long findPinned() {
+        long queens = board.getPieceBitboard(enemyColor, QUEEN);
+        long snipers = (MagicBitboards.rookAttacks(kingSquare, enemyPieces)
+                & (board.getPieceBitboard(enemyColor, ROOK) | queens))
+                | (MagicBitboards.bishopAttacks(kingSquare, enemyPieces)
+                & (board.getPieceBitboard(enemyColor, BISHOP) | queens));
+        long result = 0;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long blockers = AttackTables.between(kingSquare, Long.numberOfTrailingZeros(snipers)) & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & ownPieces) != 0) {
+                result |= blockers;
+            }
+        }
+        return result;
+    }
+
+    boolean isInCheck() {
+        return checkers != 0;
+    }
+
+    /**
+     * Adds the legal moves of every piece of this generator's color
+     */
+    void generateAll(boolean kingSide, boolean queenSide, int enPassantSquare, MoveList moves) {
+        for (long pieces = ownPieces; pieces != 0; pieces &= pieces - 1) {
+            generate(Long.numberOfTrailingZeros(pieces), kingSide, queenSide, enPassantSquare, moves);
+        }
+    }
+
+    /**
+     * Adds the legal moves of the piece on from
+     *
+     * @param kingSide        whether castling rights remain on the king side
+     * @param queenSide       whether castling rights remain on the queen side
+     * @param enPassantSquare the square a pawn skipped last turn, or -1
+     */
+    void generate(int from, boolean kingSide, boolean queenSide, int enPassantSquare, MoveList moves) {
+        ChessPiece piece = board.getPiece(from);
+        if (piece == null || piece.getTeamColor() != color) {
+            return;
+        }
+        long allowed = checkMask;
+        if ((pinned & (1L << from)) != 0) {
+            allowed &= AttackTables.line(kingSquare, from);
+        }
+        switch (piece.getPieceType()) {
+            case KING -> generateKingMoves(from, kingSide, queenSide, moves);
+            case QUEEN -> addMoves(from, MagicBitboards.queenAttacks(from, occupied) & ~ownPieces & allowed, moves);
+            case BISHOP -> addMoves(from, MagicBitboards.bishopAttacks(from, occupied) & ~ownPieces & allowed, moves);
+            case ROOK -> addMoves(from, MagicBitboards.rookAttacks(from, occupied) & ~ownPieces & allowed, moves);
+            case KNIGHT -> addMoves(from, AttackTables.knightAttacks(from) & ~ownPieces & allowed, moves);
+            case PAWN -> generatePawnMoves(from, allowed, enPassantSquare, moves);
+        }
+    }
+
+    private void generateKingMoves(int from, boolean kingSide, boolean queenSide, MoveList moves) {
+        long targets = AttackTables.kingAttacks(from) & ~ownPieces;
+        if (from == kingSquare) {
+            targets &= ~enemyAttacks;
+        }
+        addMoves(from, targets, moves);
+        if (from != castling.kingFrom(color) || checkers != 0) {
+            return;
+        }
+        long rooks = board.getPieceBitboard(color, ROOK);
+        if (kingSide && canCastle(from, CastlingTable.KING_SIDE, rooks)) {
+            moves.add(PackedMove.encode(from, castling.moveTarget(color, CastlingTable.KING_SIDE), PackedMove.CASTLE));
+        }
+        if (queenSide && canCastle(from, CastlingTable.QUEEN_SIDE, rooks)) {
+            moves.add(PackedMove.encode(from, castling.moveTarget(color, CastlingTable.QUEEN_SIDE), PackedMove.CASTLE));
+        }
+    }
+
+    private boolean canCastle(int from, int side, long rooks) {
+        int rookSquare = castling.rookFrom(color, side);
+        long castlingPieces = (1L << from) | (1L << rookSquare);
+        if ((rooks & (1L << rookSquare)) == 0 || (castling.emptyMask(color, side) & occupied & ~castlingPieces) != 0
+                || (castling.kingPath(color, side) & enemyAttacks) != 0) {
+            return false;
+        }
+        //in Chess960 the castling rook can be what was shielding the king's destination
+        int kingTarget = castling.kingTo(color, side);
+        return AttackTables.attackersTo(board, kingTarget, occupied & ~castlingPieces, enemyColor) == 0;
+    }
+
+    private void generatePawnMoves(int from, long allowed, int enPassantSquare, MoveList moves) {
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        int forward = white ? 8 : -8;
+        int startRow = white ? 1 : 6;
+        int single = from + forward;
+        if (single >= 0 && single < 64 && (occupied & (1L << single)) == 0) {
+            addPawnMove(from, single, allowed, moves);
+            int twice = single + forward;
+            if (from / 8 == startRow && (occupied & (1L << twice)) == 0 && (allowed & (1L << twice)) != 0) {
+                moves.add(PackedMove.encode(from, twice, PackedMove.DOUBLE_PAWN_PUSH));
+            }
+        }
+        long captures = AttackTables.pawnAttacks(color, from) & enemyPieces & allowed;
+        for (; captures != 0; captures &= captures - 1) {
+            addPawnMove(from, Long.numberOfTrailingZeros(captures), ~0L, moves);
+        }
+        if (enPassantSquare != -1 && (AttackTables.pawnAttacks(color, from) & (1L << enPassantSquare)) != 0
+                && enPassantIsSafe(from, enPassantSquare, enPassantSquare - forward)) {
+            moves.add(PackedMove.encode(from, enPassantSquare, PackedMove.EN_PASSANT));
+        }
+    }
+
+    /**
+     * En passant removes two pieces from one rank, which can expose the king in ways the
+     * pin masks don't see, so the resulting occupancy is checked directly.
+     */
+    private boolean enPassantIsSafe(int from, int to, int capturedSquare) {
+        long capturedBit = 1L << capturedSquare;
+        if ((board.getPieceBitboard(enemyColor, PAWN) & capturedBit) == 0) {
+            return false;
+        }
+        if (kingSquare == -1) {
+            return true;
+        }
+        long after = (occupied & ~(1L << from) & ~capturedBit) | (1L << to);
+        long remainingAttackers = AttackTables.attackersTo(board, kingSquare, after, enemyColor) & ~capturedBit;
+        return remainingAttackers == 0;
+    }
+
+    private void addPawnMove(int from, int to, long allowed, MoveList moves) {
+        if ((allowed & (1L << to)) == 0) {
+            return;
+        }
+        int promotionRow = color == ChessGame.TeamColor.WHITE ? 7 : 0;
+        if (to / 8 == promotionRow) {
+            for (int promotionFlag : PROMOTION_FLAGS) {
+                moves.add(PackedMove.encode(from, to, promotionFlag));
+            }
+        } else {
+            moves.add(PackedMove.encode(from, to, PackedMove.NORMAL));
+        }
+    }
+
+    private void addMoves(int from, long targets, MoveList moves) {
+        for (; targets != 0; targets &= targets - 1) {
+            moves.add(PackedMove.encode(from, Long.numberOfTrailingZeros(targets), PackedMove.NORMAL));
+        }
+    }
+}
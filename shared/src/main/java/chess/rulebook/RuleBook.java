@@ -1,6 +1,7 @@
 package chess.rulebook;
 
 import chess.*;
+import chess.rules.MoveList;
 
 import java.util.Collection;
 
@@ -10,8 +11,18 @@ public abstract class RuleBook implements ChessRuleBook{
     public abstract boolean isInCheck(ChessGame.TeamColor teamColor, ChessBoard board);
     public abstract boolean isInCheckmate(ChessGame.TeamColor teamColor);
     public abstract boolean isInStalemate(ChessGame.TeamColor teamColor);
+    public abstract boolean isInsufficientMaterial();
+    public abstract void generateLegalMoves(ChessGame.TeamColor teamColor, MoveList moves);
+
+    public abstract Variant getVariant();
+    public abstract CastlingTable getCastlingTable();
+    public abstract long getVariantKey();
+    public abstract ChessGame.TeamColor getVariantWinner();
+    public abstract void resetVariantState();
 
     public abstract void recordMove(ChessGame.TeamColor color, ChessMove move, MadeMove.MovedPiece piece, MadeMove.MoveType type);
+    public abstract void removeLastMove();
+    public abstract MoveHistory getMoveHistory();
     public abstract void setBoard(ChessBoard board);
     public abstract void setWhiteARookMoved(boolean val);
     public abstract void setWhiteHRookMoved(boolean val);
@@ -20,4 +31,9 @@ public abstract class RuleBook implements ChessRuleBook{
     public abstract void setWhiteKingMoved(boolean val);
     public abstract void setBlackKingMoved(boolean val);
     public abstract void resetMovedPieces();
+    public abstract int getMovedPieces();
+    public abstract void setMovedPieces(int movedPieces);
+    public abstract int getCastlingRights();
+    public abstract int getEnPassantSquare();
+    public abstract void setEnPassantSquare(int square);
 }
@@ -0,0 +1,85 @@
+package chess.rulebook;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.MadeMove;
+
+import java.util.Arrays;
+
+/**
+ * Three-check: standard chess, except giving check a third time wins
+ */
+public class ThreeCheckRuleBook extends FIDERuleBook {
+    private static final int CHECKS_TO_WIN = 3;
+    //mixed into the position key per check given, so positions with different counts don't repeat
+    private static final long[] CHECK_KEYS = {0x6C8E_9CF5_7093_2BD1L, 0x2F4A_7C15_B5AD_4ECEL};
+
+    private final int[] checksGiven = new int[2];
+
+    public ThreeCheckRuleBook(ChessBoard board) {
+        super(board, Variant.THREE_CHECK);
+    }
+
+    public ThreeCheckRuleBook() {
+        super(null, Variant.THREE_CHECK);
+    }
+
+    /**
+     * @return how many times the color has checked the other king
+     */
+    public int getChecksGiven(ChessGame.TeamColor color) {
+        return checksGiven[color.ordinal()];
+    }
+
+    @Override
+    public void recordMove(ChessGame.TeamColor color, ChessMove move, MadeMove.MovedPiece piece, MadeMove.MoveType type) {
+        super.recordMove(color, move, piece, type);
+        if (isChecked(opposite(color))) {
+            checksGiven[color.ordinal()]++;
+        }
+    }
+
+    /**
+     * Called before the board is put back, so a king in check now was checked by the move
+     * being taken back
+     */
+    @Override
+    public void removeLastMove() {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            if (isChecked(color)) {
+                checksGiven[opposite(color).ordinal()]--;
+                break;
+            }
+        }
+        super.removeLastMove();
+    }
+
+    @Override
+    public long getVariantKey() {
+        return super.getVariantKey() ^ checksGiven[0] * CHECK_KEYS[0] ^ checksGiven[1] * CHECK_KEYS[1];
+    }
+
+    @Override
+    public ChessGame.TeamColor getVariantWinner() {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            if (checksGiven[color.ordinal()] >= CHECKS_TO_WIN) {
+                return color;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void resetVariantState() {
+        Arrays.fill(checksGiven, 0);
+    }
+
+    private boolean isChecked(ChessGame.TeamColor color) {
+        return isInCheck(color, getBoard());
+    }
+
+    private static ChessGame.TeamColor opposite(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
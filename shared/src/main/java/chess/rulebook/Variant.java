@@ -0,0 +1,63 @@
+package chess.rulebook;
+
+import chess.ChessBoard;
+
+/**
+ * The rules a game is played under, picked when the game is created. Each variant has its
+ * own {@link RuleBook} subclass, which is also how saved games are read back as the right
+ * rules.
+ */
+public enum Variant {
+    STANDARD(0),
+    CHESS960(0x3C1D_7F0A_96E2_4B85L),
+    KING_OF_THE_HILL(0x7A52_E90C_14BD_6F33L),
+    THREE_CHECK(0x51F8_2C6B_A037_D9E1L);
+
+    //mixed into every position key so variants never share cached moves or repetitions
+    private final long key;
+
+    Variant(long key) {
+        this.key = key;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * @return the board a new game starts on, which for Chess960 is one of the 960 at random
+     */
+    public ChessBoard startingBoard() {
+        if (this == CHESS960) {
+            return Chess960RuleBook.randomStartingBoard();
+        }
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        return board;
+    }
+
+    /**
+     * @return the castling squares for a game starting on board
+     */
+    public CastlingTable castlingTable(ChessBoard startingBoard) {
+        return this == CHESS960 ? CastlingTable.chess960(startingBoard) : CastlingTable.STANDARD;
+    }
+
+    public RuleBook createRuleBook(ChessBoard board, CastlingTable castling) {
+        return switch (this) {
+            case STANDARD -> new FIDERuleBook(board);
+            case CHESS960 -> new Chess960RuleBook(board, castling);
+            case KING_OF_THE_HILL -> new KingOfTheHillRuleBook(board);
+            case THREE_CHECK -> new ThreeCheckRuleBook(board);
+        };
+    }
+
+    public Class<? extends RuleBook> getRuleBookClass() {
+        return switch (this) {
+            case STANDARD -> FIDERuleBook.class;
+            case CHESS960 -> Chess960RuleBook.class;
+            case KING_OF_THE_HILL -> KingOfTheHillRuleBook.class;
+            case THREE_CHECK -> ThreeCheckRuleBook.class;
+        };
+    }
+}
@@ -0,0 +1,161 @@
+package chess.rules;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import static chess.ChessPiece.PieceType.*;
+
+/**
+ * Precomputed attack sets for the pieces that don't slide, plus the square sets
+ * between and through any two squares that share a rank, file or diagonal.
+ * Squares are 0..63 indexes as used by {@link ChessBoard#squareIndex(int, int)}.
+ */
+public class AttackTables {
+    static private final long[] KNIGHT_ATTACKS = new long[64];
+    static private final long[] KING_ATTACKS = new long[64];
+    static private final long[][] PAWN_ATTACKS = new long[2][64];
+    static private final long[][] BETWEEN = new long[64][64];
+    static private final long[][] LINE = new long[64][64];
+    //rook and bishop moves from each square on an empty board
+    static private final long[] ROOK_RAYS = new long[64];
+    static private final long[] BISHOP_RAYS = new long[64];
+
+    static {
+        int[][] knightOffsets = {{2, -1}, {2, 1}, {1, 2}, {-1, 2}, {-2, 1}, {-2, -1}, {-1, -2}, {1, -2}};
+        int[][] kingOffsets = {{1, -1}, {1, 0}, {1, 1}, {0, 1}, {-1, -1}, {-1, 0}, {-1, 1}, {0, -1}};
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = offsetAttacks(square, knightOffsets);
+            KING_ATTACKS[square] = offsetAttacks(square, kingOffsets);
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = offsetAttacks(square, new int[][]{{1, -1}, {1, 1}});
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = offsetAttacks(square, new int[][]{{-1, -1}, {-1, 1}});
+            ROOK_RAYS[square] = MagicBitboards.rookAttacks(square, 0);
+            BISHOP_RAYS[square] = MagicBitboards.bishopAttacks(square, 0);
+        }
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                if (from == to) {
+                    continue;
+                }
+                long fromBit = 1L << from;
+                long toBit = 1L << to;
+                if ((MagicBitboards.rookAttacks(from, 0) & toBit) != 0) {
+                    BETWEEN[from][to] = MagicBitboards.rookAttacks(from, toBit) & MagicBitboards.rookAttacks(to, fromBit);
+                    LINE[from][to] = (MagicBitboards.rookAttacks(from, 0) & MagicBitboards.rookAttacks(to, 0)) | fromBit | toBit;
+                } else if ((MagicBitboards.bishopAttacks(from, 0) & toBit) != 0) {
+                    BETWEEN[from][to] = MagicBitboards.bishopAttacks(from, toBit) & MagicBitboards.bishopAttacks(to, fromBit);
+                    LINE[from][to] = (MagicBitboards.bishopAttacks(from, 0) & MagicBitboards.bishopAttacks(to, 0)) | fromBit | toBit;
+                }
+            }
+        }
+    }
+
+    private AttackTables() {
+    }
+
+    private static long offsetAttacks(int square, int[][] offsets) {
+        long result = 0;
+        int row = square / 8;
+        int col = square % 8;
+        for (int[] offset : offsets) {
+            int newRow = row + offset[0];
+            int newCol = col + offset[1];
+            if (newRow >= 0 && newRow < 8 && newCol >= 0 && newCol < 8) {
+                result |= 1L << (newRow * 8 + newCol);
+            }
+        }
+        return result;
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * @return the squares a pawn of the given color standing on square could capture on
+     */
+    public static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    /**
+     * @return the squares strictly between the two squares if they share a line, otherwise 0
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return the whole rank, file or diagonal through both squares, or 0 if they don't share one
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    /**
+     * @return every piece of the given color attacking square, given the occupancy
+     */
+    public static long attackersTo(ChessBoard board, int square, long occupied, ChessGame.TeamColor attackerColor) {
+        ChessGame.TeamColor defenderColor = attackerColor == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long queens = board.getPieceBitboard(attackerColor, QUEEN);
+        long rookLike = board.getPieceBitboard(attackerColor, ROOK) | queens;
+        long bishopLike = board.getPieceBitboard(attackerColor, BISHOP) | queens;
+        return (KNIGHT_ATTACKS[square] & board.getPieceBitboard(attackerColor, KNIGHT))
+                | (KING_ATTACKS[square] & board.getPieceBitboard(attackerColor, KING))
+                //a pawn attacks square exactly when a defending pawn on square would attack it
+                | (pawnAttacks(defenderColor, square) & board.getPieceBitboard(attackerColor, PAWN))
+                | (MagicBitboards.rookAttacks(square, occupied) & rookLike)
+                | (MagicBitboards.bishopAttacks(square, occupied) & bishopLike);
+    }
+
+    /**
+     * Works out whether any piece of the given color attacks square, looking outward from
+     * the square one piece type at a time and stopping at the first attacker found. Sliding
+     * attacks are only looked up when a rook, bishop or queen stands somewhere on the square's
+     * empty-board rays, so most calls are a handful of table reads and never allocate.
+     */
+    public static boolean isAttacked(ChessBoard board, int square, long occupied, ChessGame.TeamColor attackerColor) {
+        if ((KNIGHT_ATTACKS[square] & board.getPieceBitboard(attackerColor, KNIGHT)) != 0) {
+            return true;
+        }
+        ChessGame.TeamColor defenderColor = attackerColor == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        if ((pawnAttacks(defenderColor, square) & board.getPieceBitboard(attackerColor, PAWN)) != 0
+                || (KING_ATTACKS[square] & board.getPieceBitboard(attackerColor, KING)) != 0) {
+            return true;
+        }
+        long queens = board.getPieceBitboard(attackerColor, QUEEN);
+        long rookLike = (board.getPieceBitboard(attackerColor, ROOK) | queens) & ROOK_RAYS[square];
+        if (rookLike != 0 && (MagicBitboards.rookAttacks(square, occupied) & rookLike) != 0) {
+            return true;
+        }
+        long bishopLike = (board.getPieceBitboard(attackerColor, BISHOP) | queens) & BISHOP_RAYS[square];
+        return bishopLike != 0 && (MagicBitboards.bishopAttacks(square, occupied) & bishopLike) != 0;
+    }
+
+    /**
+     * @return every square attacked by the given color's pieces, given the occupancy
+     */
+    public static long attackedSquares(ChessBoard board, long occupied, ChessGame.TeamColor attackerColor) {
+        long attacked = 0;
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            for (long pieces = board.getPieceBitboard(attackerColor, type); pieces != 0; pieces &= pieces - 1) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                attacked |= switch (type) {
+                    case KING -> KING_ATTACKS[square];
+                    case QUEEN -> MagicBitboards.queenAttacks(square, occupied);
+                    case BISHOP -> MagicBitboards.bishopAttacks(square, occupied);
+                    case KNIGHT -> KNIGHT_ATTACKS[square];
+                    case ROOK -> MagicBitboards.rookAttacks(square, occupied);
+                    case PAWN -> pawnAttacks(attackerColor, square);
+                };
+            }
+        }
+        return attacked;
+    }
+}
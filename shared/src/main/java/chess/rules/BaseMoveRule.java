@@ -2,69 +2,29 @@ package chess.rules;
 
 import chess.ChessBoard;
 import chess.ChessMove;
-import chess.ChessPiece;
 import chess.ChessPosition;
 
 import java.util.Collection;
+import java.util.HashSet;
 
 
 public abstract class BaseMoveRule implements MoveRule {
-    protected void calculateMoves(ChessBoard board, ChessPosition pos, int[][] directions,
-                                  Collection<ChessMove> moves, boolean continueMoving) {
-        for (int[] moveDirection : directions) {
-            boolean moveAvailable = true;
-//            ChessPosition newPos = new ChessPosition(pos);
-            int[] moveToPosition = {pos.getRow() + moveDirection[0], pos.getColumn() + moveDirection[1]};
-            while(moveAvailable) {
-                boolean onBoard = checkOnBoard(moveToPosition);
-
-                if (onBoard) {
-                    ChessPosition newPos = new ChessPosition(moveToPosition[0], moveToPosition[1]);
-                    boolean emptySquare = checkSquareEmpty(board, newPos);
-                    moveAvailable = addPossibleMoves(moves, pos, newPos, moveToPosition, moveDirection, emptySquare, moveAvailable, board);
-                    if (!continueMoving) {
-                        moveAvailable = false;
-                    }
-                } else {
-                    moveAvailable = false;
-                }
-            }
-        }
+    @Override
+    public Collection<ChessMove> moves(ChessBoard board, ChessPosition position) {
+        MoveList moves = MoveList.acquire();
+        generate(board, ChessBoard.squareIndex(position), moves);
+        Collection<ChessMove> result = new HashSet<>();
+        moves.addTo(result);
+        moves.release();
+        return result;
     }
-    private boolean addPossibleMoves(Collection<ChessMove> moves, ChessPosition pos, ChessPosition newPos,
-                                    int[] moveToPosition, int[] moveDirection,
-                                    boolean emptySquare, boolean moveAvailable, ChessBoard board) {
-        if (emptySquare) {
-            //square is empty
-            moves.add(new ChessMove(pos, newPos));
-            moveToPosition[0] += moveDirection[0];
-            moveToPosition[1] += moveDirection[1];
 
-        } else {
-            boolean samePieceColor = isSameColor(board, pos, newPos);
-            if (!samePieceColor) {
-                //opposing piece occupies the square.
-                moves.add(new ChessMove(pos, newPos));
-            }
-            //stop making new options in this direction
-            moveAvailable = false;
+    protected void addAttackMoves(ChessBoard board, int square, long attacks, MoveList moves) {
+        long ownPieces = board.getColorBitboard(board.getPiece(square).getTeamColor());
+        for (long targets = attacks & ~ownPieces; targets != 0; targets &= targets - 1) {
+            moves.add(PackedMove.encode(square, Long.numberOfTrailingZeros(targets), PackedMove.NORMAL));
         }
-        return moveAvailable;
-    }
-
-    protected boolean checkOnBoard(int[] pos) {
-        return pos[0] > 0 && pos[0] < 9 && pos[1] > 0 && pos[1] < 9;
-    }
-
-    protected boolean checkSquareEmpty(ChessBoard board, ChessPosition pos) {
-        return board.getPiece(pos) == null;
-    }
-
-    protected boolean isSameColor(ChessBoard board, ChessPosition start, ChessPosition pos) {
-        ChessPiece piece = board.getPiece(start);
-        ChessPiece otherPiece = board.getPiece(pos);
-        return piece.getTeamColor() == otherPiece.getTeamColor();
     }
 
-    abstract public Collection<ChessMove> moves(ChessBoard board, ChessPosition position);
+    abstract public void generate(ChessBoard board, int square, MoveList moves);
 }
@@ -0,0 +1,135 @@
+package chess.rules;
+
+/**
+ * Precomputed magic bitboard attack tables for the sliding pieces.
+ * <p>
+ * For every square the relevant blocker mask is multiplied by a magic number so the
+ * blockers on that mask hash perfectly into a table of attack sets. Looking up the
+ * squares a rook or bishop attacks is then a mask, a multiply and a shift.
+ */
+public class MagicBitboards {
+    static private final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    static private final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static private final long[] ROOK_MAGICS = {
+            0x0080002080104001L, 0x004000200010004CL, 0x1100102001004208L, 0x0080100008008004L,
+            0x320002009004A008L, 0x23800400802A0001L, 0x0C00082084010230L, 0x4100020341219300L,
+            0x0454800280204010L, 0x0004802000854004L, 0x0021002004110441L, 0x0000800800801000L,
+            0x4004800802808400L, 0x0022001002004884L, 0x1002000408010200L, 0x400100085A008100L,
+            0x2040008000482880L, 0x1040064020005000L, 0x8020420010208200L, 0x0010010020110408L,
+            0x0600050008001100L, 0x0002008002040080L, 0x0000040050214208L, 0x4040020000810044L,
+            0x1080004040002000L, 0x0040200040005008L, 0x0090420200102083L, 0x4048100100090421L,
+            0x0090100500080100L, 0x040850080104C020L, 0x0081880400021001L, 0x4806090200084084L,
+            0x0080804004800020L, 0x0008812005804000L, 0x6080802000801000L, 0x1810800800801000L,
+            0x1546800800800403L, 0x0000800400800200L, 0x0900020804000150L, 0x8003004082000401L,
+            0x0050401080208000L, 0x0420003000C0C008L, 0x0010040028002001L, 0x0209001000090020L,
+            0x7000040008008080L, 0x0102000400808002L, 0x120B040200010100L, 0x0E00008100420004L,
+            0x0480204082010200L, 0x0002090050208600L, 0x1020410020001900L, 0x0405009000208900L,
+            0x0010080004008080L, 0x2042008890C42200L, 0x2002800200010080L, 0x0005114402890200L,
+            0x0419004010220086L, 0x8100420100208012L, 0x040200801020440AL, 0x103F00081000602DL,
+            0x0101001028000423L, 0x8001000814000203L, 0x0240108810410214L, 0x0000884083140226L
+    };
+
+    static private final long[] BISHOP_MAGICS = {
+            0x104802182A040010L, 0x1020042882024410L, 0x0210009481109600L, 0x0A04440082002004L,
+            0x0042021000004000L, 0x9112020220041050L, 0x0D00820111C00000L, 0x0000808801302A08L,
+            0xA011061024280080L, 0x0000911000808081L, 0x0000644102020200L, 0x0000040418840201L,
+            0x0002240422400511L, 0x0000021130080942L, 0x9800009C11201000L, 0x200000422A012002L,
+            0x0148006060010243L, 0x4102002028020090L, 0x0044000808501200L, 0x0000800802810030L,
+            0x0001011820080014L, 0x18B10A4200900402L, 0x4004028084040225L, 0x0000804032011000L,
+            0x0008200008A00100L, 0x0401200029820400L, 0x0084120101080102L, 0x00208020C8020020L,
+            0x0101010080104000L, 0x0290010000208800L, 0x819A044024240200L, 0x0420888011041080L,
+            0x00080208501020A8L, 0x204090C410900400L, 0x0000580800140440L, 0x0006004040140100L,
+            0x0001100401208020L, 0x0220008900088040L, 0x2202484900684401L, 0xC00E02060000E0A0L,
+            0x000801300A001004L, 0x0029009004001010L, 0x400100C230002204L, 0x0040020102442400L,
+            0x6002880100400400L, 0x0032022041000A00L, 0x80901000C9000080L, 0x5001021293048208L,
+            0x0282080405048000L, 0x002A208410280000L, 0x0280088048088000L, 0x0180000442020800L,
+            0x0200004008220004L, 0x0061040408021810L, 0x202020040140403CL, 0x0002100101050061L,
+            0x0200104208044011L, 0x0300004042101100L, 0x0008020100411008L, 0x1410403040420201L,
+            0x00900000110A0A11L, 0x800200A015014A00L, 0x4044102008808080L, 0x0040300206204090L
+    };
+
+    static private final long[] ROOK_MASKS = new long[64];
+    static private final long[] BISHOP_MASKS = new long[64];
+    static private final int[] ROOK_SHIFTS = new int[64];
+    static private final int[] BISHOP_SHIFTS = new int[64];
+    static private final long[][] ROOK_ATTACKS = new long[64][];
+    static private final long[][] BISHOP_ATTACKS = new long[64][];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            initSquare(square, ROOK_DIRECTIONS, ROOK_MAGICS, ROOK_MASKS, ROOK_SHIFTS, ROOK_ATTACKS);
+            initSquare(square, BISHOP_DIRECTIONS, BISHOP_MAGICS, BISHOP_MASKS, BISHOP_SHIFTS, BISHOP_ATTACKS);
+        }
+    }
+
+    private MagicBitboards() {
+    }
+
+    private static void initSquare(int square, int[][] directions, long[] magics, long[] masks,
+                                   int[] shifts, long[][] attacks) {
+        long mask = slidingAttacks(square, 0, directions, true);
+        int bits = Long.bitCount(mask);
+        masks[square] = mask;
+        shifts[square] = 64 - bits;
+        attacks[square] = new long[1 << bits];
+        //walk every subset of the mask (Carry-Rippler) and store the attacks it produces
+        long blockers = 0;
+        do {
+            int index = (int) ((blockers * magics[square]) >>> shifts[square]);
+            attacks[square][index] = slidingAttacks(square, blockers, directions, false);
+            blockers = (blockers - mask) & mask;
+        } while (blockers != 0);
+    }
+
+    private static long slidingAttacks(int square, long blockers, int[][] directions, boolean relevantOnly) {
+        long result = 0;
+        int row = square / 8;
+        int col = square % 8;
+        for (int[] direction : directions) {
+            int nextRow = row + direction[0];
+            int nextCol = col + direction[1];
+            while (nextRow >= 0 && nextRow < 8 && nextCol >= 0 && nextCol < 8) {
+                int afterRow = nextRow + direction[0];
+                int afterCol = nextCol + direction[1];
+                boolean edge = afterRow < 0 || afterRow > 7 || afterCol < 0 || afterCol > 7;
+                if (relevantOnly && edge) {
+                    //a blocker on the last square of a ray never changes the attack set
+                    break;
+                }
+                long bit = 1L << (nextRow * 8 + nextCol);
+                result |= bit;
+                if ((blockers & bit) != 0) {
+                    break;
+                }
+                nextRow = afterRow;
+                nextCol = afterCol;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param square   0..63 square index of the rook
+     * @param occupied every occupied square on the board
+     * @return the squares the rook attacks, including the first blocker on each ray
+     */
+    public static long rookAttacks(int square, long occupied) {
+        int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_ATTACKS[square][index];
+    }
+
+    /**
+     * @param square   0..63 square index of the bishop
+     * @param occupied every occupied square on the board
+     * @return the squares the bishop attacks, including the first blocker on each ray
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_ATTACKS[square][index];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+}
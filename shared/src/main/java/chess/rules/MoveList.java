@@ -0,0 +1,72 @@
+package chess.rules;
+
+import chess.ChessMove;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A reusable, array backed list of {@link PackedMove} ints.
+ * <p>
+ * Lists are pooled per thread: take one with {@link #acquire()} and hand it back with
+ * {@link #release()} once the moves have been read, so steady state generation doesn't allocate.
+ */
+public class MoveList {
+    //no legal chess position has more than 218 moves
+    private static final int CAPACITY = 256;
+    private static final ThreadLocal<ArrayDeque<MoveList>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final int[] moves = new int[CAPACITY];
+    private int size;
+
+    public static MoveList acquire() {
+        MoveList list = POOL.get().poll();
+        if (list == null) {
+            list = new MoveList();
+        }
+        list.clear();
+        return list;
+    }
+
+    public void release() {
+        POOL.get().push(this);
+    }
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(moves, size);
+    }
+
+    /**
+     * Converts every move to a {@link ChessMove} and adds it to result
+     */
+    public void addTo(Collection<ChessMove> result) {
+        for (int i = 0; i < size; i++) {
+            result.add(PackedMove.toChessMove(moves[i]));
+        }
+    }
+}
@@ -8,4 +8,12 @@ import java.util.Collection;
 
 public interface MoveRule {
     Collection<ChessMove> moves(ChessBoard board, ChessPosition pos);
+
+    /**
+     * Adds the piece's moves, as {@link PackedMove} ints, without checking whether they
+     * leave the king in danger
+     *
+     * @param square 0..63 index of the piece
+     */
+    void generate(ChessBoard board, int square, MoveList moves);
 }
@@ -0,0 +1,72 @@
+package chess.rules;
+
+import chess.ChessBoard;
+import chess.ChessMove;
+import chess.ChessPiece;
+
+/**
+ * Moves packed into the low 16 bits of an int, so generating one costs no allocation.
+ * <p>
+ * Bits 0-5 hold the start square, bits 6-11 the end square (0..63 as used by
+ * {@link ChessBoard#squareIndex(int, int)}) and bits 12-15 one of the flags below.
+ */
+public class PackedMove {
+    public static final int NORMAL = 0;
+    public static final int DOUBLE_PAWN_PUSH = 1;
+    public static final int CASTLE = 2;
+    public static final int EN_PASSANT = 3;
+    public static final int PROMOTE_KNIGHT = 4;
+    public static final int PROMOTE_BISHOP = 5;
+    public static final int PROMOTE_ROOK = 6;
+    public static final int PROMOTE_QUEEN = 7;
+
+    private PackedMove() {
+    }
+
+    public static int encode(int from, int to, int flag) {
+        return from | (to << 6) | (flag << 12);
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 12) & 0xF;
+    }
+
+    public static boolean isPromotion(int move) {
+        return flag(move) >= PROMOTE_KNIGHT;
+    }
+
+    /**
+     * @return the piece a promotion turns into, or null if the move isn't a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        return switch (flag(move)) {
+            case PROMOTE_KNIGHT -> ChessPiece.PieceType.KNIGHT;
+            case PROMOTE_BISHOP -> ChessPiece.PieceType.BISHOP;
+            case PROMOTE_ROOK -> ChessPiece.PieceType.ROOK;
+            case PROMOTE_QUEEN -> ChessPiece.PieceType.QUEEN;
+            default -> null;
+        };
+    }
+
+    public static int promotionFlag(ChessPiece.PieceType type) {
+        return switch (type) {
+            case KNIGHT -> PROMOTE_KNIGHT;
+            case BISHOP -> PROMOTE_BISHOP;
+            case ROOK -> PROMOTE_ROOK;
+            case QUEEN -> PROMOTE_QUEEN;
+            default -> throw new IllegalArgumentException("Can't promote to " + type);
+        };
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(ChessBoard.positionOf(from(move)), ChessBoard.positionOf(to(move)), promotion(move));
+    }
+}
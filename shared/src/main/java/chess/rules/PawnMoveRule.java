@@ -2,92 +2,46 @@ package chess.rules;
 
 import chess.*;
 
-import java.util.Collection;
-import java.util.HashSet;
-
 public class PawnMoveRule extends BaseMoveRule{
-//    @Override
-    protected void calculateMoves(ChessBoard board, ChessPosition pos, int direction,
-                                  Collection<ChessMove> moves, boolean firstMove) {
+    private static final int[] PROMOTION_FLAGS = {
+            PackedMove.PROMOTE_QUEEN, PackedMove.PROMOTE_ROOK, PackedMove.PROMOTE_BISHOP, PackedMove.PROMOTE_KNIGHT,
+    };
+
+    @Override
+    public void generate(ChessBoard board, int square, MoveList moves) {
+        ChessGame.TeamColor pieceColor = board.getPiece(square).getTeamColor();
+        boolean white = pieceColor == ChessGame.TeamColor.WHITE;
+        int forward = white ? 8 : -8;
+        int startRow = white ? 1 : 6;
+        long occupied = board.getOccupied();
         //Moves
-        boolean moveAvailable = true;
-        int[] moveToPosition = {pos.getRow() + direction, pos.getColumn()};
-        while(moveAvailable) {
-            ChessPosition newPos = new ChessPosition(moveToPosition[0], moveToPosition[1]);
-            boolean emptySquare = checkSquareEmpty(board, newPos);
-            if (emptySquare) {
-                //square is empty
-                if (movesToBackRow(newPos)) {
-                    addBackRowMoves(moves, pos, newPos);
-                } else {
-                    moves.add(new ChessMove(pos, newPos));
-                }
-                if (firstMove) {
-                    moveToPosition[0] += direction;
-                    firstMove = false;
-                } else {
-                    moveAvailable = false;
-                }
-            } else {
-                moveAvailable = false;
+        int single = square + forward;
+        if (single >= 0 && single < 64 && (occupied & (1L << single)) == 0) {
+            addPawnMove(moves, square, single);
+            int twice = single + forward;
+            if (square / 8 == startRow && (occupied & (1L << twice)) == 0) {
+                moves.add(PackedMove.encode(square, twice, PackedMove.DOUBLE_PAWN_PUSH));
             }
-
         }
         //Captures
-        int[][] captureDirections = {
-                {direction, -1},    //Attack Left/Right
-                {direction, 1},     //Attack Right/Left
-        };
-        for (int[] capDirection : captureDirections) {
-            moveToPosition = new int[]{pos.getRow() + capDirection[0], pos.getColumn() + capDirection[1]};
-            boolean onBoard = checkOnBoard(moveToPosition);
-
-            if (onBoard) {
-                ChessPosition newPos = new ChessPosition(moveToPosition[0], moveToPosition[1]);
-                boolean emptySquare = checkSquareEmpty(board, newPos);
-                if (!emptySquare) {
-                    boolean samePieceColor = isSameColor(board, pos, newPos);
-                    if (!samePieceColor) {
-                        addPossiblePawnMoves(moves, pos, newPos);
-                    }
-                }
-            }
-        }
-    }
-
-    private void addPossiblePawnMoves(Collection<ChessMove> moves, ChessPosition pos, ChessPosition newPos) {
-        if (movesToBackRow(newPos)) {
-            addBackRowMoves(moves, pos, newPos);
-        } else {
-            moves.add(new ChessMove(pos, newPos));
+        ChessGame.TeamColor enemyColor = white ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long captures = AttackTables.pawnAttacks(pieceColor, square) & board.getColorBitboard(enemyColor);
+        for (; captures != 0; captures &= captures - 1) {
+            addPawnMove(moves, square, Long.numberOfTrailingZeros(captures));
         }
     }
 
-    private boolean movesToBackRow(ChessPosition pos) {
-        return pos.getRow() == 1 || pos.getRow() == 8;
-    }
-
-    @Override
-    public Collection<ChessMove> moves(ChessBoard board, ChessPosition position) {
-        var moves = new HashSet<ChessMove>();
-        int direction;
-        boolean firstMove;
-        ChessGame.TeamColor pieceColor = board.getPiece(position).getTeamColor();
-        if (pieceColor == ChessGame.TeamColor.WHITE) {
-            direction = 1;
-            firstMove = position.getRow() == 2;
+    private void addPawnMove(MoveList moves, int from, int to) {
+        if (movesToBackRow(to)) {
+            for (int promotionFlag : PROMOTION_FLAGS) {
+                moves.add(PackedMove.encode(from, to, promotionFlag));
+            }
         } else {
-            direction = -1;
-            firstMove = position.getRow() == 7;
+            moves.add(PackedMove.encode(from, to, PackedMove.NORMAL));
         }
-        calculateMoves(board, position, direction, moves, firstMove);
-        return moves;
     }
 
-    private void addBackRowMoves(Collection<ChessMove> moves, ChessPosition pos, ChessPosition newPos) {
-        moves.add(new ChessMove(pos, newPos, ChessPiece.PieceType.QUEEN));
-        moves.add(new ChessMove(pos, newPos, ChessPiece.PieceType.ROOK));
-        moves.add(new ChessMove(pos, newPos, ChessPiece.PieceType.BISHOP));
-        moves.add(new ChessMove(pos, newPos, ChessPiece.PieceType.KNIGHT));
+    private boolean movesToBackRow(int square) {
+        return square / 8 == 0 || square / 8 == 7;
     }
 }
@@ -1,15 +1,18 @@
 package deserializer;
 
+import chess.ChessBoard;
 import chess.ChessGame;
 import chess.ChessPiece;
 import chess.ChessPosition;
-import chess.rulebook.FIDERuleBook;
 import chess.rulebook.RuleBook;
+import chess.rulebook.Variant;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
-import java.util.HashMap;
 import java.util.Map;
 
 public class ChessDeserializer {
@@ -18,11 +21,9 @@ public class ChessDeserializer {
        return new GsonBuilder()
            .registerTypeAdapter(ChessPosition.class, new ChessPositionDeserializer())
            .registerTypeAdapter(ChessPiece.class, new ChessPieceDeserializer())
-           .registerTypeAdapter(new TypeToken<Map<ChessPosition, ChessPiece>>() {
-           }.getType(), new CustomPieceMapDeserializer())
-           .registerTypeAdapter(new TypeToken<Map<ChessPiece, ChessPosition>>() {
-           }.getType(), new CustomPositionMapDeserializer())
-           .registerTypeAdapter(RuleBook.class, new RuleBookInstanceCreator())
+           .registerTypeAdapter(RuleBook.class, new RuleBookDeserializer())
+           .registerTypeAdapterFactory(new ChessBoardAdapterFactory())
+           .registerTypeAdapterFactory(new ChessGameAdapterFactory())
            .create();
    }
 
@@ -36,7 +37,7 @@ public class ChessDeserializer {
                 JsonObject jsonObject = json.getAsJsonObject();
                 int row = jsonObject.get("row").getAsInt();
                 int col = jsonObject.get("col").getAsInt();
-                return new ChessPosition(row, col);
+                return ChessPosition.of(row, col);
             }
             else {
                 throw new JsonParseException("Expected a string for ChessPosition, but got: " + json);
@@ -60,42 +61,88 @@ public class ChessDeserializer {
             }
         }
     }
-    private static class CustomPieceMapDeserializer implements JsonDeserializer<Map<ChessPosition, ChessPiece>> {
+    /**
+     * Reads boards normally, then recomputes their Zobrist key since games saved before the
+     * key existed don't have one. Boards saved before the bitboards, as a map from position to
+     * piece, are converted by adding their pieces one at a time.
+     */
+    private static class ChessBoardAdapterFactory implements TypeAdapterFactory {
         @Override
-        public Map<ChessPosition, ChessPiece> deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) {
-            Map<ChessPosition, ChessPiece> map = new HashMap<>();
-            JsonObject jsonObject = json.getAsJsonObject();
-
-            for (Map.Entry<String, JsonElement> entry : jsonObject.entrySet()) {
-                ChessPosition position = ChessPosition.fromString(entry.getKey());
-                ChessPiece piece = context.deserialize(entry.getValue(), ChessPiece.class);
-                map.put(position, piece);
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != ChessBoard.class) {
+                return null;
             }
+            TypeAdapter<ChessBoard> delegate = (TypeAdapter<ChessBoard>) gson.getDelegateAdapter(this, type);
+            return (TypeAdapter<T>) new TypeAdapter<ChessBoard>() {
+                @Override
+                public void write(JsonWriter out, ChessBoard board) throws IOException {
+                    delegate.write(out, board);
+                }
+
+                @Override
+                public ChessBoard read(JsonReader in) throws IOException {
+                    JsonElement json = gson.getAdapter(JsonElement.class).read(in);
+                    if (json.isJsonObject() && json.getAsJsonObject().has("pieces")) {
+                        return readPieceMap(json.getAsJsonObject().getAsJsonObject("pieces"));
+                    }
+                    ChessBoard board = delegate.fromJsonTree(json);
+                    if (board != null) {
+                        board.rehash();
+                    }
+                    return board;
+                }
 
-            return map;
+                private ChessBoard readPieceMap(JsonObject pieces) {
+                    ChessBoard board = new ChessBoard();
+                    for (Map.Entry<String, JsonElement> entry : pieces.entrySet()) {
+                        ChessPosition position = ChessPosition.fromString(entry.getKey());
+                        board.addPiece(position, gson.fromJson(entry.getValue(), ChessPiece.class));
+                    }
+                    return board;
+                }
+            };
         }
     }
-
-    private static class CustomPositionMapDeserializer implements JsonDeserializer<Map<ChessPiece, ChessPosition>> {
+    /**
+     * Reads games normally, then hands the rule book the game's board
+     */
+    private static class ChessGameAdapterFactory implements TypeAdapterFactory {
         @Override
-        public Map<ChessPiece, ChessPosition> deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) {
-            Map<ChessPiece, ChessPosition> map = new HashMap<>();
-            JsonObject jsonObject = json.getAsJsonObject();
-
-            for (Map.Entry<String, JsonElement> entry : jsonObject.entrySet()) {
-                ChessPiece piece = ChessPiece.fromString(entry.getKey());
-                ChessPosition position = context.deserialize(entry.getValue(), ChessPosition.class);
-                map.put(piece, position);
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != ChessGame.class) {
+                return null;
             }
+            TypeAdapter<ChessGame> delegate = (TypeAdapter<ChessGame>) gson.getDelegateAdapter(this, type);
+            return (TypeAdapter<T>) new TypeAdapter<ChessGame>() {
+                @Override
+                public void write(JsonWriter out, ChessGame game) throws IOException {
+                    delegate.write(out, game);
+                }
 
-            return map;
+                @Override
+                public ChessGame read(JsonReader in) throws IOException {
+                    ChessGame game = delegate.read(in);
+                    if (game != null) {
+                        game.relinkRuleBook();
+                    }
+                    return game;
+                }
+            };
         }
     }
-
-    public class RuleBookInstanceCreator implements InstanceCreator<RuleBook> {
+    /**
+     * Rule books are saved with their fields, but Gson only sees the abstract RuleBook type,
+     * so read them back as their variant's class to keep castling, en passant and move history.
+     * Games saved before variants existed are standard chess.
+     */
+    private static class RuleBookDeserializer implements JsonDeserializer<RuleBook> {
         @Override
-        public RuleBook createInstance(Type type) {
-            return new FIDERuleBook(); // Return an instance of your concrete class
+        public RuleBook deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+            JsonElement variant = json.getAsJsonObject().get("variant");
+            Variant type = variant == null ? Variant.STANDARD : Variant.valueOf(variant.getAsString());
+            return context.deserialize(json, type.getRuleBookClass());
         }
     }
 }
@@ -0,0 +1,43 @@
+package model;
+
+/**
+ * A seat taken by the server's engine instead of a user. The bot is stored in the game as a
+ * username that no user can register, which also records how long it thinks per move, so
+ * games with bots need nothing extra saved.
+ *
+ * @param moveMillis how long the bot searches for each move
+ */
+public record BotPlayer(long moveMillis) {
+    public static final String USERNAME_PREFIX = "bot:";
+    public static final long MIN_MOVE_MILLIS = 50;
+    public static final long MAX_MOVE_MILLIS = 30_000;
+
+    public BotPlayer {
+        if (moveMillis < MIN_MOVE_MILLIS || moveMillis > MAX_MOVE_MILLIS) {
+            throw new IllegalArgumentException("A bot thinks for " + MIN_MOVE_MILLIS + " to "
+                    + MAX_MOVE_MILLIS + "ms per move, not " + moveMillis);
+        }
+    }
+
+    public static boolean isBot(String username) {
+        return username != null && username.startsWith(USERNAME_PREFIX);
+    }
+
+    /**
+     * @return the bot sitting in a seat, or null if the seat is empty or a user's
+     */
+    public static BotPlayer fromUsername(String username) {
+        if (!isBot(username) || !username.endsWith("ms")) {
+            return null;
+        }
+        try {
+            return new BotPlayer(Long.parseLong(username.substring(USERNAME_PREFIX.length(), username.length() - 2)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    public String username() {
+        return USERNAME_PREFIX + moveMillis + "ms";
+    }
+}
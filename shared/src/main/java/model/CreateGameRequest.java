@@ -1,3 +1,12 @@
 package model;
 
-public record CreateGameRequest(String gameName) {}
+import chess.rulebook.Variant;
+
+/**
+ * @param variant the rules to play under, standard chess when left out
+ */
+public record CreateGameRequest(String gameName, Variant variant) {
+    public CreateGameRequest(String gameName) {
+        this(gameName, null);
+    }
+}
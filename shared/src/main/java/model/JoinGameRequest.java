@@ -2,4 +2,12 @@ package model;
 
 import chess.ChessGame;
 
-public record JoinGameRequest(ChessGame.TeamColor playerColor, int gameID) {}
+/**
+ * @param botMoveMillis when set, seats a {@link BotPlayer} thinking this long per move
+ *                      instead of the user making the request
+ */
+public record JoinGameRequest(ChessGame.TeamColor playerColor, int gameID, Long botMoveMillis) {
+    public JoinGameRequest(ChessGame.TeamColor playerColor, int gameID) {
+        this(playerColor, gameID, null);
+    }
+}
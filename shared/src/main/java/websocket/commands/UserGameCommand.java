@@ -29,6 +29,7 @@ public class UserGameCommand {
         RESIGN,
         DRAW,
         HIGHLIGHT,
+        ANALYZE,
     }
 
     public CommandType getCommandType() {
@@ -0,0 +1,84 @@
+package websocket.messages;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+import java.util.List;
+
+/**
+ * One step of an engine analysis of the game, sent after each deeper search finishes.
+ * Scores are from white's point of view whoever is to move.
+ */
+public class AnalysisMessage extends ServerMessage {
+    private final int depth;
+    //centipawns, or 0 when mateIn is set
+    private final int score;
+    //moves until mate, negative when black mates, 0 if no mate was found
+    private final int mateIn;
+    private final List<ChessMove> principalVariation;
+    private final long nodesPerSecond;
+    //true on the last message of an analysis
+    private final boolean finished;
+
+    public AnalysisMessage(int depth, int score, int mateIn, List<ChessMove> principalVariation,
+                           long nodesPerSecond, boolean finished) {
+        super(ServerMessageType.ANALYSIS);
+        this.depth = depth;
+        this.score = score;
+        this.mateIn = mateIn;
+        this.principalVariation = principalVariation;
+        this.nodesPerSecond = nodesPerSecond;
+        this.finished = finished;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getMateIn() {
+        return mateIn;
+    }
+
+    public List<ChessMove> getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    public long getNodesPerSecond() {
+        return nodesPerSecond;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public String getMessage() {
+        var result = new StringBuilder();
+        result.append("depth ").append(depth).append("  ");
+        if (mateIn != 0) {
+            result.append(mateIn > 0 ? "white" : "black").append(" mates in ").append(Math.abs(mateIn));
+        } else {
+            result.append(String.format("%+.2f", score / 100.0));
+        }
+        result.append("  ").append(nodesPerSecond / 1000).append("k nodes/s ");
+        for (ChessMove move : principalVariation) {
+            result.append(' ').append(squareName(move.getStartPosition())).append(squareName(move.getEndPosition()));
+            if (move.getPromotionPiece() != null) {
+                result.append(new ChessPiece(ChessGame.TeamColor.BLACK, move.getPromotionPiece()));
+            }
+        }
+        if (finished) {
+            result.append("  (done)");
+        }
+        return result.toString();
+    }
+
+    private static String squareName(ChessPosition position) {
+        return "" + (char) ('a' + position.getColumn() - 1) + position.getRow();
+    }
+}
@@ -0,0 +1,57 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BoardSnapshotTests {
+
+    @Test
+    void snapshotIsPublishedAfterMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        BoardSnapshot start = game.getSnapshot();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        BoardSnapshot afterMove = game.getSnapshot();
+
+        Assertions.assertNotSame(start, afterMove);
+        Assertions.assertEquals(new ChessGame().getBoard().toString(), start.toString());
+        Assertions.assertEquals(game.getBoard().toString(), afterMove.toString());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, afterMove.getTeamTurn());
+        Assertions.assertEquals(1, afterMove.getPly());
+        Assertions.assertEquals(game.getPositionKey(), afterMove.getPositionKey());
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", afterMove.getFen());
+    }
+
+    @Test
+    void snapshotIgnoresLaterChanges() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        BoardSnapshot start = game.getSnapshot();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        start.toBoard().removePiece(ChessPosition.of(1, 5));
+
+        Assertions.assertNotNull(start.getPiece(ChessPosition.of(2, 5)));
+        Assertions.assertNotNull(start.getPiece(ChessPosition.of(1, 5)));
+        Assertions.assertEquals(2, start.validMoves(ChessPosition.of(2, 5)).size(), "e2 pawn can still move in the snapshot");
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, start.toGame().getTeamTurn());
+    }
+
+    @Test
+    void highlightsComeFromSharedCache() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 4), ChessPosition.of(4, 4), null));
+        var knight = ChessPosition.of(8, 2);
+        var expected = game.validMoves(knight);
+        long hits = SharedMoveCache.shared().getHits();
+        Assertions.assertEquals(expected, game.getSnapshot().validMoves(knight));
+        Assertions.assertTrue(SharedMoveCache.shared().getHits() > hits);
+        Assertions.assertNull(game.getSnapshot().validMoves(ChessPosition.of(4, 1)));
+        Assertions.assertEquals(game.validMoves(ChessPosition.of(1, 7)), game.getSnapshot().validMoves(ChessPosition.of(1, 7)));
+    }
+
+    @Test
+    void loadedGamesSnapshotOnDemand() {
+        ChessGame game = Fen.load("4k3/8/8/8/8/8/8/R3K3 b Q - 0 1");
+        BoardSnapshot snapshot = game.getSnapshot();
+        Assertions.assertEquals("4k3/8/8/8/8/8/8/R3K3 b Q - 0 1", snapshot.getFen());
+        Assertions.assertSame(snapshot, game.getSnapshot());
+    }
+}
@@ -0,0 +1,78 @@
+package chess;
+
+import com.google.gson.Gson;
+import deserializer.ChessDeserializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static chess.TestMoves.move;
+
+public class DrawTests {
+
+    private static void shuffleKnights(ChessGame game) throws InvalidMoveException {
+        game.makeMove(move("g1", "f3"));
+        game.makeMove(move("g8", "f6"));
+        game.makeMove(move("f3", "g1"));
+        game.makeMove(move("f6", "g8"));
+    }
+
+    @Test
+    void threefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        Assertions.assertEquals(2, game.getRepetitionCount());
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+        shuffleKnights(game);
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW_REPETITION, game.getGameStatus());
+        game.unmakeMove();
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+    }
+
+    @Test
+    void repetitionsSurviveJson() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        String json = new Gson().toJson(game);
+        Assertions.assertFalse(json.contains("positionHistory"), "Position keys are rebuilt from the moves, not saved");
+        ChessGame read = new ChessDeserializer().createChessGson().fromJson(json, ChessGame.class);
+        Assertions.assertEquals(2, read.getRepetitionCount());
+        read.makeMove(move("g1", "f3"));
+        read.makeMove(move("g8", "f6"));
+        read.makeMove(move("f3", "g1"));
+        read.makeMove(move("f6", "g8"));
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW_REPETITION, read.getGameStatus());
+    }
+
+    @Test
+    void fiftyMoveRule() throws InvalidMoveException {
+        ChessGame game = Fen.load("4k3/8/8/8/8/8/4P3/R3K3 w - - 99 80");
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+        game.makeMove(move("a1", "a2"));
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW_FIFTY_MOVES, game.getGameStatus());
+        game.unmakeMove();
+        game.makeMove(move("e2", "e4"));
+        Assertions.assertEquals(0, game.getHalfmoveClock());
+    }
+
+    @Test
+    void settingTheClockUpdatesStatus() {
+        ChessGame game = Fen.load("4k3/8/8/8/8/8/4P3/R3K3 w - - 0 1");
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+        game.setHalfmoveClock(100);
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW_FIFTY_MOVES, game.getGameStatus());
+        game.setHalfmoveClock(0);
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+    }
+
+    @Test
+    void insufficientMaterial() {
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW_INSUFFICIENT_MATERIAL,
+                Fen.load("4k3/8/8/8/8/8/8/2B1K3 w - - 0 1").getGameStatus());
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW_INSUFFICIENT_MATERIAL,
+                Fen.load("2b1k3/8/8/8/8/8/8/4KB2 w - - 0 1").getGameStatus());
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING,
+                Fen.load("1b2k3/8/8/8/8/8/8/4KB2 w - - 0 1").getGameStatus());
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING,
+                Fen.load("4k3/8/8/8/8/8/8/1N2K1N1 w - - 0 1").getGameStatus());
+    }
+}
@@ -0,0 +1,109 @@
+package chess;
+
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static chess.TestMoves.move;
+
+public class EngineTests {
+
+    @Test
+    void findsMateInOne() {
+        //back rank mate
+        ChessGame game = Fen.load("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        SearchResult result = new Engine(1).search(game, SearchLimits.depth(4));
+        Assertions.assertEquals(move("a1", "a8"), result.bestMove());
+        Assertions.assertEquals(1, result.mateIn());
+    }
+
+    @Test
+    void findsMateInTwo() {
+        ChessGame game = Fen.load("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1");
+        SearchResult result = new Engine(1).search(game, SearchLimits.depth(6));
+        Assertions.assertEquals(move("d5", "f6"), result.bestMove());
+        Assertions.assertEquals(2, result.mateIn());
+    }
+
+    @Test
+    void takesHangingQueen() {
+        ChessGame game = Fen.load("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        SearchResult result = new Engine(1).search(game, SearchLimits.depth(3));
+        Assertions.assertEquals(move("d2", "d5"), result.bestMove());
+        Assertions.assertTrue(result.score() > 300);
+    }
+
+    @Test
+    void leavesGameAsFound() {
+        ChessGame game = new ChessGame();
+        long key = game.getPositionKey();
+        String fen = Fen.write(game);
+        List<SearchResult> iterations = new ArrayList<>();
+        SearchResult result = new Engine(1).search(game, SearchLimits.depth(4), iterations::add);
+        Assertions.assertEquals(key, game.getPositionKey());
+        Assertions.assertEquals(fen, Fen.write(game));
+        Assertions.assertEquals(4, iterations.size());
+        Assertions.assertEquals(iterations.get(3).principalVariation(), result.principalVariation());
+        Assertions.assertTrue(game.validMoves(result.bestMove().getStartPosition()).contains(result.bestMove()));
+    }
+
+    @Test
+    void parallelSearch() {
+        ChessGame game = Fen.load("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1");
+        String fen = Fen.write(game);
+        Engine engine = new Engine(1, 4);
+        SearchResult result = engine.search(game, SearchLimits.depth(6));
+        Assertions.assertEquals(move("d5", "f6"), result.bestMove());
+        Assertions.assertEquals(2, result.mateIn());
+        Assertions.assertEquals(fen, Fen.write(game));
+
+        result = engine.search(Fen.load("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1"), SearchLimits.depth(5));
+        Assertions.assertEquals(move("d2", "d5"), result.bestMove());
+    }
+
+    @Test
+    void scoresFollowMoves() {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(0, game.getBoard().getMidgameScore());
+        Assertions.assertEquals(0, game.getBoard().getEndgameScore());
+        Assertions.assertEquals(ChessBoard.OPENING_PHASE, game.getBoard().getGamePhase());
+
+        //a random walk of moves and take backs from a position with castling, en passant and promotions close by
+        game = Fen.load("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        Random random = new Random(7);
+        int made = 0;
+        for (int i = 0; i < 2000; i++) {
+            List<ChessMove> moves = new ArrayList<>();
+            game.legalMoves(game.getTeamTurn()).values().forEach(moves::addAll);
+            if (made > 0 && (moves.isEmpty() || random.nextInt(3) == 0)) {
+                game.unmakeMove();
+                made--;
+            } else if (!moves.isEmpty()) {
+                game.applyMove(moves.get(random.nextInt(moves.size())));
+                made++;
+            }
+            ChessBoard rebuilt = new ChessBoard(game.getBoard());
+            rebuilt.rehash();
+            Assertions.assertEquals(rebuilt.getMidgameScore(), game.getBoard().getMidgameScore());
+            Assertions.assertEquals(rebuilt.getEndgameScore(), game.getBoard().getEndgameScore());
+            Assertions.assertEquals(rebuilt.getGamePhase(), game.getBoard().getGamePhase());
+        }
+    }
+
+    @Test
+    void stopsAtTimeLimit() {
+        ChessGame game = Fen.load("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        long start = System.nanoTime();
+        SearchResult result = new Engine(1).search(game, new SearchLimits(SearchLimits.MAX_DEPTH, 200));
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        Assertions.assertNotNull(result.bestMove());
+        Assertions.assertTrue(result.depth() < SearchLimits.MAX_DEPTH);
+        Assertions.assertTrue(elapsed < 1000, "Took " + elapsed + "ms");
+    }
+}
@@ -0,0 +1,31 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static chess.TestMoves.move;
+
+public class GameStatusTests {
+
+    @Test
+    void statusFollowsMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move("f2", "f3"));
+        game.makeMove(move("e7", "e5"));
+        game.makeMove(move("g2", "g4"));
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+        game.makeMove(move("d8", "h4"));
+        Assertions.assertEquals(ChessGame.GameStatus.CHECKMATE, game.getGameStatus());
+        Assertions.assertTrue(game.isGameOver());
+        game.unmakeMove();
+        Assertions.assertFalse(game.isGameOver());
+    }
+
+    @Test
+    void statusSeesBoardEdits() {
+        ChessGame game = Fen.load("7k/8/5K2/8/8/8/8/8 b - - 0 1");
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW_INSUFFICIENT_MATERIAL, game.getGameStatus());
+        game.getBoard().addPiece(ChessPosition.of(6, 7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        Assertions.assertEquals(ChessGame.GameStatus.STALEMATE, game.getGameStatus());
+    }
+}
@@ -0,0 +1,150 @@
+package chess;
+
+import chess.rules.MoveList;
+import chess.rules.PackedMove;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import deserializer.ChessDeserializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static chess.TestMoves.move;
+
+public class MoveHistoryTests {
+
+    /**
+     * Plays random legal moves, returning the FEN after each ply with index 0 the start
+     */
+    private static List<String> playRandomGame(ChessGame game, int plies) {
+        Random random = new Random(240);
+        List<String> positions = new ArrayList<>();
+        positions.add(Fen.write(game));
+        MoveList moves = MoveList.acquire();
+        for (int i = 0; i < plies; i++) {
+            moves.clear();
+            game.generateLegalMoves(moves);
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.applyMove(PackedMove.toChessMove(moves.get(random.nextInt(moves.size()))));
+            positions.add(Fen.write(game));
+        }
+        moves.release();
+        return positions;
+    }
+
+    @Test
+    void replayMatchesPlayedPositions() {
+        ChessGame game = new ChessGame();
+        List<String> positions = playRandomGame(game, 100);
+        MoveHistory history = game.getRuleBook().getMoveHistory();
+        Assertions.assertEquals(positions.size() - 1, history.size());
+        for (int ply = positions.size() - 1; ply >= 0; ply -= 7) {
+            Assertions.assertEquals(positions.get(ply).split(" ")[0], Fen.write(game.positionAt(ply)).split(" ")[0]);
+        }
+        Assertions.assertEquals(game.getBoard(), game.positionAt(history.size()).getBoard());
+    }
+
+    @Test
+    void startIsRecordedWhenTheGameIsSetUp() {
+        Assertions.assertEquals(Fen.START_POSITION, new ChessGame().getRuleBook().getMoveHistory().getStart());
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        ChessGame game = Fen.load(fen);
+        MoveHistory history = game.getRuleBook().getMoveHistory();
+        String start = history.getStart();
+        Assertions.assertEquals(fen, start);
+
+        //a search takes every move back to an empty history, and mustn't write the start again
+        MoveList moves = MoveList.acquire();
+        game.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            game.applyMove(PackedMove.toChessMove(moves.get(i)));
+            game.unmakeMove();
+        }
+        moves.release();
+        Assertions.assertSame(start, history.getStart());
+    }
+
+    @Test
+    void checkpointsComeFromMadeMoves() throws InvalidMoveException {
+        ChessGame searched = new ChessGame();
+        List<String> positions = playRandomGame(searched, 40);
+        searched.positionAt(40);
+        Assertions.assertNull(searched.getRuleBook().getMoveHistory().getCheckpoint(1), "Reading a position changes nothing");
+
+        ChessGame played = new ChessGame();
+        for (int i = 0; i < 40; i++) {
+            played.makeMove(PackedMove.toChessMove(searched.getRuleBook().getMoveHistory().getPackedMove(i)));
+        }
+        Assertions.assertEquals(positions.get(32), played.getRuleBook().getMoveHistory().getCheckpoint(1));
+    }
+
+    @Test
+    void unmakeDropsMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        List<String> positions = playRandomGame(game, 40);
+        ChessGame played = new ChessGame();
+        for (int i = 0; i < 40; i++) {
+            played.makeMove(PackedMove.toChessMove(game.getRuleBook().getMoveHistory().getPackedMove(i)));
+        }
+        game = played;
+        for (int i = 0; i < 10; i++) {
+            game.unmakeMove();
+        }
+        MoveHistory history = game.getRuleBook().getMoveHistory();
+        Assertions.assertEquals(30, history.size());
+        Assertions.assertEquals(positions.get(30).split(" ")[0], Fen.write(game.positionAt(30)).split(" ")[0]);
+    }
+
+    @Test
+    void historySurvivesJson() {
+        ChessGame game = new ChessGame();
+        playRandomGame(game, 60);
+        String json = new Gson().toJson(game);
+        ChessGame read = new ChessDeserializer().createChessGson().fromJson(json, ChessGame.class);
+        MoveHistory original = game.getRuleBook().getMoveHistory();
+        MoveHistory history = read.getRuleBook().getMoveHistory();
+        Assertions.assertEquals(original.size(), history.size());
+        for (int i = 0; i < history.size(); i++) {
+            Assertions.assertEquals(original.getMove(i).getMove(), history.getMove(i).getMove());
+            Assertions.assertEquals(original.getMove(i).getPiece(), history.getMove(i).getPiece());
+        }
+        Assertions.assertEquals(game.getBoard(), read.positionAt(history.size()).getBoard());
+        Assertions.assertEquals(game.getPositionKey(), read.getPositionKey());
+    }
+
+    @Test
+    void madeMoveListIsConverted() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move("e2", "e4"));
+        game.makeMove(move("d7", "d5"));
+        game.makeMove(move("e4", "d5"));
+        //a history saved before it was packed, as the list of MadeMove objects
+        JsonObject json = new Gson().toJsonTree(game).getAsJsonObject();
+        json.getAsJsonObject("ruleBook").add("moveHistory", new Gson().fromJson("""
+                {"moves":[
+                  {"move":{"start":{"row":2,"col":5},"end":{"row":4,"col":5}},"piece":"PAWN","color":"WHITE"},
+                  {"move":{"start":{"row":7,"col":4},"end":{"row":5,"col":4}},"piece":"PAWN","color":"BLACK"},
+                  {"move":{"start":{"row":4,"col":5},"end":{"row":5,"col":4}},"piece":"PAWN","type":"CAPTURE","color":"WHITE"}]}""",
+                JsonObject.class));
+        ChessGame read = new ChessDeserializer().createChessGson().fromJson(json, ChessGame.class);
+        MoveHistory history = read.getRuleBook().getMoveHistory();
+        Assertions.assertEquals(3, history.size());
+        Assertions.assertEquals(move("e4", "d5"), history.getLastMove().getMove());
+        Assertions.assertEquals(MadeMove.MoveType.CAPTURE, history.getLastMove().getType());
+        Assertions.assertEquals(Fen.write(game.positionAt(1)), Fen.write(read.positionAt(1)));
+        Assertions.assertEquals(game.getBoard(), read.positionAt(3).getBoard());
+
+        //a move that can't be read fails the whole game rather than losing the history
+        json.getAsJsonObject("ruleBook").add("moveHistory", new Gson().fromJson("""
+                {"moves":[{"move":{"start":{"row":2,"col":5},"end":{"row":4,"col":5}},"piece":"PAWN"}]}""",
+                JsonObject.class));
+        Assertions.assertThrows(JsonParseException.class,
+                () -> new ChessDeserializer().createChessGson().fromJson(json, ChessGame.class));
+    }
+}
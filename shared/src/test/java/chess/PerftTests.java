@@ -0,0 +1,88 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import chess.rules.AttackTables;
+import chess.rules.MoveList;
+import chess.rules.PackedMove;
+
+import java.util.HashSet;
+import java.util.stream.Stream;
+
+public class PerftTests {
+
+    @TestFactory
+    Stream<DynamicTest> standardPositions() {
+        return Perft.POSITIONS.stream().map(position -> DynamicTest.dynamicTest(position.name(), () -> {
+            ChessGame game = Fen.load(position.fen());
+            int depth = position.testDepth();
+            Assertions.assertEquals(position.counts()[depth - 1], Perft.perft(game, depth),
+                    "Wrong node count at depth " + depth);
+        }));
+    }
+
+    @TestFactory
+    Stream<DynamicTest> legalMovesMatchValidMoves() {
+        return Perft.POSITIONS.stream().map(position -> DynamicTest.dynamicTest(position.name(), () -> {
+            ChessGame game = Fen.load(position.fen());
+            var legalMoves = game.legalMoves(game.getTeamTurn());
+            Assertions.assertEquals(position.counts()[0],
+                    legalMoves.values().stream().mapToLong(moves -> moves.size()).sum());
+            legalMoves.forEach((square, moves) -> {
+                Assertions.assertEquals(game.validMoves(square), new HashSet<>(moves), "Moves from " + square);
+                //the rule book generates without the shared cache, so it has to agree with it
+                Assertions.assertEquals(game.getRuleBook().validMoves(square), new HashSet<>(moves), "Moves from " + square);
+            });
+            for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+                Assertions.assertEquals(game.getRuleBook().isInCheckmate(color), game.isInCheckmate(color));
+                Assertions.assertEquals(game.getRuleBook().isInStalemate(color), game.isInStalemate(color));
+            }
+        }));
+    }
+
+    /**
+     * The early-exit check test against the full attacker set, after every reply in each position
+     */
+    @TestFactory
+    Stream<DynamicTest> isInCheckMatchesAttackers() {
+        return Perft.POSITIONS.stream().map(position -> DynamicTest.dynamicTest(position.name(), () -> {
+            ChessGame game = Fen.load(position.fen());
+            MoveList moves = MoveList.acquire();
+            game.generateLegalMoves(moves);
+            for (int i = 0; i < moves.size(); i++) {
+                game.applyMove(PackedMove.toChessMove(moves.get(i)));
+                for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+                    ChessBoard board = game.getBoard();
+                    ChessGame.TeamColor enemy = color == ChessGame.TeamColor.WHITE
+                            ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+                    boolean attacked = AttackTables.attackersTo(board, board.getKingSquare(color),
+                            board.getOccupied(), enemy) != 0;
+                    Assertions.assertEquals(attacked, game.isInCheck(color));
+                }
+                game.unmakeMove();
+            }
+            moves.release();
+        }));
+    }
+
+    @Test
+    void perftLeavesBoardUnchanged() {
+        ChessGame game = Fen.load(Perft.POSITIONS.get(1).fen());
+        ChessBoard before = new ChessBoard(game.getBoard());
+        Perft.perft(game, 3);
+        Assertions.assertEquals(before, game.getBoard());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+    }
+
+    @Test
+    void divideSumsToPerft() {
+        ChessGame game = Fen.load(Fen.START_POSITION);
+        var divided = Perft.divide(game, 3);
+        Assertions.assertEquals(20, divided.size());
+        Assertions.assertEquals(8902L, divided.values().stream().mapToLong(Long::longValue).sum());
+        Assertions.assertEquals(600L, divided.get("e2e4"));
+    }
+}
@@ -0,0 +1,39 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SharedMoveCacheTests {
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        //one entry per segment, keys 0 and 1 land in the same segment
+        SharedMoveCache cache = new SharedMoveCache(16);
+        cache.put(0, 0, new int[]{1});
+        cache.put(1, 0, new int[]{2});
+        Assertions.assertNull(cache.get(0, 0));
+        Assertions.assertArrayEquals(new int[]{2}, cache.get(1, 0));
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(new SharedMoveCache.Metrics(1, 16, 1, 1, 0.5), cache.getMetrics());
+    }
+
+    @Test
+    void occupancyGuardsAgainstCollisions() {
+        SharedMoveCache cache = new SharedMoveCache(16);
+        cache.put(7, 0xFFL, new int[]{1});
+        Assertions.assertNull(cache.get(7, 0xF0L));
+    }
+
+    @Test
+    void gamesShareMoves() throws InvalidMoveException {
+        ChessGame first = new ChessGame();
+        ChessGame second = new ChessGame();
+        var e2 = ChessPosition.of(2, 5);
+        first.makeMove(new ChessMove(e2, ChessPosition.of(4, 5), null));
+        second.makeMove(new ChessMove(e2, ChessPosition.of(4, 5), null));
+        long hits = SharedMoveCache.shared().getHits();
+        Assertions.assertEquals(first.validMoves(ChessPosition.of(7, 5)), second.validMoves(ChessPosition.of(7, 5)));
+        Assertions.assertTrue(SharedMoveCache.shared().getHits() > hits);
+    }
+}
@@ -0,0 +1,18 @@
+package chess;
+
+/**
+ * Builds positions and moves from square names such as "e4", so tests can write moves the
+ * way they're read
+ */
+final class TestMoves {
+    private TestMoves() {
+    }
+
+    static ChessPosition square(String name) {
+        return ChessPosition.of(name.charAt(1) - '0', name.charAt(0) - 'a' + 1);
+    }
+
+    static ChessMove move(String from, String to) {
+        return new ChessMove(square(from), square(to), null);
+    }
+}
@@ -0,0 +1,135 @@
+package chess;
+
+import chess.rulebook.CastlingTable;
+import chess.rulebook.Chess960RuleBook;
+import chess.rulebook.ThreeCheckRuleBook;
+import chess.rulebook.Variant;
+import com.google.gson.Gson;
+import deserializer.ChessDeserializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static chess.TestMoves.move;
+
+public class VariantTests {
+
+    private static void play(ChessGame game, String... moves) throws InvalidMoveException {
+        for (String move : moves) {
+            game.makeMove(move(move.substring(0, 2), move.substring(2, 4)));
+        }
+    }
+
+    /**
+     * Loads a Chess960 position whose king and rooks started on the given files (0 is a)
+     */
+    private static ChessGame load960(String fen, int kingFile, int queenRookFile, int kingRookFile) {
+        ChessBoard start = new ChessBoard();
+        start.addPiece(ChessBoard.positionOf(kingFile), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        start.addPiece(ChessBoard.positionOf(queenRookFile), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        start.addPiece(ChessBoard.positionOf(kingRookFile), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        return Fen.load(fen, new ChessGame(new ChessBoard(), Variant.CHESS960, CastlingTable.chess960(start)));
+    }
+
+    @Test
+    void chess960StartingPositions() {
+        ChessBoard standard = new ChessBoard();
+        standard.resetBoard();
+        Assertions.assertEquals(standard, Chess960RuleBook.startingBoard(518));
+        Set<String> seen = new HashSet<>();
+        for (int number = 0; number < 960; number++) {
+            ChessBoard board = Chess960RuleBook.startingBoard(number);
+            Assertions.assertTrue(seen.add(board.toString()), "Position " + number + " repeated");
+            //throws unless the king is between the rooks
+            CastlingTable castling = CastlingTable.chess960(board);
+            Assertions.assertTrue(castling.rookFrom(ChessGame.TeamColor.WHITE, CastlingTable.QUEEN_SIDE)
+                    < castling.kingFrom(ChessGame.TeamColor.WHITE));
+            long bishops = board.getPieceBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
+            Assertions.assertEquals(1, Long.bitCount(bishops & 0x55AA55AA55AA55AAL), "Position " + number);
+        }
+    }
+
+    @Test
+    void chess960Perft() {
+        ChessGame game = load960("bqnb1rkr/pp3ppp/3ppn2/2p5/5P2/P2P4/NPP1P1PP/BQ1BNRKR w KQkq - 2 9", 6, 5, 7);
+        Assertions.assertEquals(21, Perft.perft(game, 1));
+        Assertions.assertEquals(528, Perft.perft(game, 2));
+        Assertions.assertEquals(12189, Perft.perft(game, 3));
+
+        game = load960("2nnrbkr/p1qppppp/8/1ppb4/6PP/3PP3/PPP2P2/BQNNRBKR w KQkq - 1 9", 6, 4, 7);
+        Assertions.assertEquals(21, Perft.perft(game, 1));
+        Assertions.assertEquals(807, Perft.perft(game, 2));
+        Assertions.assertEquals(18002, Perft.perft(game, 3));
+
+        game = load960("b1q1rrkb/pppppppp/3nn3/8/P7/1PPP4/4PPPP/BQNNRKRB w KQ - 1 9", 5, 4, 6);
+        Assertions.assertEquals(20, Perft.perft(game, 1));
+        Assertions.assertEquals(479, Perft.perft(game, 2));
+        Assertions.assertEquals(10471, Perft.perft(game, 3));
+    }
+
+    @Test
+    void chess960CastleOntoRook() throws InvalidMoveException {
+        //king on b1 castles queen side: king to c1, rook from a1 to d1
+        ChessGame game = load960("4k3/8/8/8/8/8/8/RK5R w KQ - 0 1", 1, 0, 7);
+        long key = game.getPositionKey();
+        Assertions.assertTrue(game.validMoves(ChessPosition.of(1, 2)).contains(move("b1", "a1")));
+        game.makeMove(move("b1", "a1"));
+        Assertions.assertEquals(ChessPiece.PieceType.KING, game.getBoard().getPiece(ChessPosition.of(1, 3)).getPieceType());
+        Assertions.assertEquals(ChessPiece.PieceType.ROOK, game.getBoard().getPiece(ChessPosition.of(1, 4)).getPieceType());
+        Assertions.assertNull(game.getBoard().getPiece(ChessPosition.of(1, 1)));
+        Assertions.assertNull(game.getBoard().getPiece(ChessPosition.of(1, 2)));
+        game.unmakeMove();
+        Assertions.assertEquals(key, game.getPositionKey());
+    }
+
+    @Test
+    void chess960SurvivesJson() {
+        ChessGame game = load960("4k3/8/8/8/8/8/8/RK5R w KQ - 0 1", 1, 0, 7);
+        String json = new Gson().toJson(game);
+        ChessGame read = new ChessDeserializer().createChessGson().fromJson(json, ChessGame.class);
+        Assertions.assertEquals(Variant.CHESS960, read.getVariant());
+        Assertions.assertEquals(game.getPositionKey(), read.getPositionKey());
+        Assertions.assertTrue(read.validMoves(ChessPosition.of(1, 2)).contains(move("b1", "a1")));
+    }
+
+    @Test
+    void variantsDontShareKeys() {
+        ChessBoard start = Chess960RuleBook.startingBoard(518);
+        ChessGame chess960 = new ChessGame(start, Variant.CHESS960, CastlingTable.chess960(start));
+        Assertions.assertEquals(new ChessGame().getBoard(), chess960.getBoard());
+        Assertions.assertNotEquals(new ChessGame().getPositionKey(), chess960.getPositionKey());
+        Assertions.assertNotEquals(new ChessGame().getPositionKey(), new ChessGame(Variant.THREE_CHECK).getPositionKey());
+    }
+
+    @Test
+    void kingOfTheHill() throws InvalidMoveException {
+        ChessGame game = new ChessGame(Variant.KING_OF_THE_HILL);
+        play(game, "e2e3", "e7e6", "e1e2", "e8e7", "e2d3", "e7d6");
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+        play(game, "d3d4");
+        Assertions.assertEquals(ChessGame.GameStatus.VARIANT_WIN, game.getGameStatus());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, game.getVariantWinner());
+    }
+
+    @Test
+    void threeCheck() throws InvalidMoveException {
+        ChessGame game = new ChessGame(Variant.THREE_CHECK);
+        ThreeCheckRuleBook ruleBook = (ThreeCheckRuleBook) game.getRuleBook();
+        play(game, "e2e4", "e7e5", "f1c4", "b8c6", "c4f7", "e8f7", "d1h5", "f7e7");
+        Assertions.assertEquals(2, ruleBook.getChecksGiven(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+        play(game, "h5e5");
+        Assertions.assertEquals(ChessGame.GameStatus.VARIANT_WIN, game.getGameStatus());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, game.getVariantWinner());
+
+        String json = new Gson().toJson(game);
+        ChessGame read = new ChessDeserializer().createChessGson().fromJson(json, ChessGame.class);
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, read.getVariantWinner());
+
+        game.unmakeMove();
+        Assertions.assertEquals(2, ruleBook.getChecksGiven(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+    }
+}
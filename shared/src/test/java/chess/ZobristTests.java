@@ -0,0 +1,103 @@
+package chess;
+
+import com.google.gson.Gson;
+import deserializer.ChessDeserializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static chess.TestMoves.move;
+import static chess.TestMoves.square;
+
+public class ZobristTests {
+
+    @Test
+    void incrementalKeyMatchesRehash() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move("e2", "e4"));
+        game.makeMove(move("d7", "d5"));
+        game.makeMove(move("e4", "d5"));
+        long key = game.getBoard().getZobristKey();
+        game.getBoard().rehash();
+        Assertions.assertEquals(key, game.getBoard().getZobristKey());
+    }
+
+    @Test
+    void transpositionsShareKey() throws InvalidMoveException {
+        ChessGame first = new ChessGame();
+        first.makeMove(move("g1", "f3"));
+        first.makeMove(move("g8", "f6"));
+        first.makeMove(move("b1", "c3"));
+        ChessGame second = new ChessGame();
+        second.makeMove(move("b1", "c3"));
+        second.makeMove(move("g8", "f6"));
+        second.makeMove(move("g1", "f3"));
+        Assertions.assertEquals(first.getPositionKey(), second.getPositionKey());
+        Assertions.assertEquals(first.getBoard(), second.getBoard());
+    }
+
+    @Test
+    void positionKeyCoversTurnAndCastling() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        long start = game.getPositionKey();
+        game.makeMove(move("g1", "f3"));
+        game.makeMove(move("g8", "f6"));
+        game.makeMove(move("f3", "g1"));
+        game.makeMove(move("f6", "g8"));
+        Assertions.assertEquals(start, game.getPositionKey());
+
+        game.makeMove(move("e2", "e3"));
+        game.makeMove(move("e7", "e6"));
+        long withRights = game.getPositionKey();
+        game.makeMove(move("e1", "e2"));
+        game.makeMove(move("e8", "e7"));
+        game.makeMove(move("e2", "e1"));
+        game.makeMove(move("e7", "e8"));
+        Assertions.assertEquals(game.getBoard().getZobristKey(), new ChessBoard(game.getBoard()).getZobristKey());
+        Assertions.assertNotEquals(withRights, game.getPositionKey(), "Moving the kings loses castling rights");
+
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertNotEquals(game.getPositionKey(), withRights);
+    }
+
+    @Test
+    void keySurvivesJson() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move("e2", "e4"));
+        String json = new Gson().toJson(game);
+        Assertions.assertFalse(json.contains("zobristKey"), "The key is recomputed on read, not saved");
+        Assertions.assertFalse(json.contains("squares"));
+        ChessGame read = new ChessDeserializer().createChessGson().fromJson(json, ChessGame.class);
+        Assertions.assertEquals(game.getBoard().getZobristKey(), read.getBoard().getZobristKey());
+        Assertions.assertEquals(game.getBoard(), read.getBoard());
+    }
+
+    @Test
+    void legacyJsonIsRehashed() {
+        ChessGame game = new ChessGame();
+        var json = new Gson().toJsonTree(game).getAsJsonObject();
+        //boards saved while the key and square lookup were still stored, with a key that's wrong
+        json.getAsJsonObject("board").addProperty("zobristKey", 12345L);
+        json.getAsJsonObject("board").add("squares", new Gson().toJsonTree(new byte[64]));
+        ChessGame read = new ChessDeserializer().createChessGson().fromJson(json, ChessGame.class);
+        Assertions.assertEquals(game.getBoard(), read.getBoard());
+        Assertions.assertEquals(game.getBoard().getPiece(ChessPosition.of(1, 5)), read.getBoard().getPiece(ChessPosition.of(1, 5)));
+    }
+
+    @Test
+    void pieceMapJsonIsConverted() {
+        //a board saved before the bitboards, as maps between positions and pieces
+        String json = """
+                {"teamTurn":"BLACK","board":{
+                  "pieces":{"(row-1, col-5)":{"type":"KING","color":"WHITE"},
+                            "(row-1, col-1)":{"type":"ROOK","color":"WHITE"},
+                            "(row-8, col-5)":{"type":"KING","color":"BLACK"}},
+                  "positions":{"K":"(row-1, col-5)","R":"(row-1, col-1)","k":"(row-8, col-5)"}},
+                 "ruleBook":{"whiteKingMoved":false}}""";
+        ChessGame read = new ChessDeserializer().createChessGson().fromJson(json, ChessGame.class);
+        ChessGame expected = Fen.load("4k3/8/8/8/8/8/8/R3K3 b Q - 0 1");
+        Assertions.assertEquals(expected.getBoard(), read.getBoard());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, read.getTeamTurn());
+        Assertions.assertEquals(expected.getBoard().getMidgameScore(), read.getBoard().getMidgameScore());
+        Assertions.assertFalse(read.validMoves(ChessPosition.of(8, 5)).isEmpty());
+    }
+}